@@ -0,0 +1,567 @@
+package com.github.salpadding.rlpstream.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * generate a XxxRlpCodec source file for every class annotated with @RlpProps or declares @RlpCreator/@RlpWriter,
+ * generated codecs are listed in META-INF/services/com.github.salpadding.rlpstream.RlpCodec
+ * codecs of classes decoded by properties or @RlpCreator constructor implement ListDecoder, and of classes encoded by properties
+ * implement ListWriter, so they are expanded as frames by iterative traversal
+ * classes which cannot be encoded/decoded without reflection are skipped, and fallback to reflective codecs at runtime
+ */
+@SupportedAnnotationTypes({
+        RlpCodecProcessor.RLP_PROPS,
+        RlpCodecProcessor.RLP_CREATOR,
+        RlpCodecProcessor.RLP_WRITER
+})
+public final class RlpCodecProcessor extends AbstractProcessor {
+    static final String RLP_PROPS = "com.github.salpadding.rlpstream.annotation.RlpProps";
+    static final String RLP_CREATOR = "com.github.salpadding.rlpstream.annotation.RlpCreator";
+    static final String RLP_WRITER = "com.github.salpadding.rlpstream.annotation.RlpWriter";
+    static final String RLP_WRITABLE = "com.github.salpadding.rlpstream.RlpWritable";
+    static final String RLP_BUFFER = "com.github.salpadding.rlpstream.RlpBuffer";
+    static final String SERVICE_FILE = "META-INF/services/com.github.salpadding.rlpstream.RlpCodec";
+    static final String CODEC_SUFFIX = "RlpCodec";
+
+    private final Set<String> codecs = new TreeSet<>();
+    private final Set<String> visited = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+                Element t = e.getKind().isClass() || e.getKind().isInterface() ? e : e.getEnclosingElement();
+                if (t instanceof TypeElement && visited.add(((TypeElement) t).getQualifiedName().toString()))
+                    generate((TypeElement) t);
+            }
+        }
+        if (roundEnv.processingOver() && !codecs.isEmpty())
+            writeServiceFile();
+        return false;
+    }
+
+    // children of rlp list decoded by properties or constructor arguments, for ListDecoder and ListWriter members
+    private static final class Child {
+        final TypeMirror type;
+        // statement format setting the value, e.g. "o.setName(%s)" or "a.a0 = %s"
+        final String target;
+
+        Child(TypeMirror type, String target) {
+            this.type = type;
+            this.target = target;
+        }
+    }
+
+    private void generate(TypeElement t) {
+        String reason = skipReason(t);
+        List<Child> decoded = new ArrayList<>();
+        List<String> encoded = new ArrayList<>();
+        String decode = reason == null ? decodeBody(t, decoded) : null;
+        String encode = decode == null ? null : encodeBody(t, encoded);
+        if (reason == null && (decode == null || encode == null))
+            reason = "members are not accessible without reflection";
+        if (reason != null) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.NOTE, "rlp codec for " + t.getQualifiedName() + " not generated, " + reason, t
+            );
+            return;
+        }
+
+        String pkg = processingEnv.getElementUtils().getPackageOf(t).getQualifiedName().toString();
+        String name = codecName(t);
+        String type = t.getQualifiedName().toString();
+        String frames = decoded.isEmpty() ? null : listDecoderMembers(t, decoded);
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty())
+            sb.append("package ").append(pkg).append(";\n\n");
+        if (frames != null)
+            sb.append("import com.github.salpadding.rlpstream.ListDecoder;\n");
+        if (!encoded.isEmpty())
+            sb.append("import com.github.salpadding.rlpstream.ListWriter;\n");
+        sb.append("import com.github.salpadding.rlpstream.RlpBuffer;\n")
+                .append("import com.github.salpadding.rlpstream.RlpCodec;\n")
+                .append("import com.github.salpadding.rlpstream.StreamId;\n")
+                .append("import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;\n\n")
+                .append("// generated by ").append(RlpCodecProcessor.class.getName()).append(", do not edit\n")
+                .append("public final class ").append(name).append(" implements RlpCodec<").append(type).append(">");
+        if (frames != null)
+            sb.append(", ListDecoder<").append(type).append(">");
+        if (!encoded.isEmpty())
+            sb.append(", ListWriter");
+        sb.append(" {\n")
+                .append("    @Override\n")
+                .append("    public Class<").append(type).append("> type() {\n")
+                .append("        return ").append(type).append(".class;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(type).append(" decode(byte[] bin, long streamId) {\n")
+                .append(decode)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public int encode(RlpBuffer buf, ").append(type).append(" o) {\n")
+                .append(encode)
+                .append("    }\n");
+        if (frames != null)
+            sb.append(frames);
+        if (!encoded.isEmpty())
+            sb.append(listWriterMembers(type, encoded));
+        sb.append("}\n");
+
+        String qualified = pkg.isEmpty() ? name : pkg + "." + name;
+        try {
+            JavaFileObject f = processingEnv.getFiler().createSourceFile(qualified, t);
+            try (Writer w = f.openWriter()) {
+                w.write(sb.toString());
+            }
+            codecs.add(qualified);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "write " + qualified + " failed: " + e.getMessage(), t);
+        }
+    }
+
+    private void writeServiceFile() {
+        try {
+            FileObject f = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer w = f.openWriter()) {
+                for (String codec : codecs) {
+                    w.write(codec);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "write " + SERVICE_FILE + " failed: " + e.getMessage());
+        }
+    }
+
+    private String skipReason(TypeElement t) {
+        if (t.getKind() != ElementKind.CLASS)
+            return "not a class";
+        if (!t.getTypeParameters().isEmpty())
+            return "generic class is not supported";
+        for (Element e = t; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE))
+                return "private class is not accessible";
+            if (e.getEnclosingElement() instanceof TypeElement && !e.getModifiers().contains(Modifier.STATIC))
+                return "inner class is not supported";
+        }
+        return null;
+    }
+
+    private static String codecName(TypeElement t) {
+        StringBuilder name = new StringBuilder(t.getSimpleName());
+        for (Element e = t.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            name.insert(0, e.getSimpleName() + "_");
+        }
+        return name + CODEC_SUFFIX;
+    }
+
+    // priority follows RlpStream.decode: static @RlpCreator, @RlpCreator constructor, @RlpProps
+    // children decoded by constructor arguments or properties are added to children
+    private String decodeBody(TypeElement t, List<Child> children) {
+        String type = t.getQualifiedName().toString();
+        for (ExecutableElement m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+            if (!isAnnotated(m, RLP_CREATOR))
+                continue;
+            if (!m.getModifiers().contains(Modifier.STATIC) || !accessible(m) || m.getParameters().size() != 2
+                    || !isType(m.getParameters().get(0).asType(), "byte[]")
+                    || !isType(m.getParameters().get(1).asType(), "long"))
+                return null;
+            return "        return " + type + "." + m.getSimpleName() + "(bin, streamId);\n";
+        }
+
+        ExecutableElement creator = null;
+        ExecutableElement noArg = null;
+        for (ExecutableElement c : ElementFilter.constructorsIn(t.getEnclosedElements())) {
+            if (!accessible(c))
+                continue;
+            if (c.getParameters().isEmpty())
+                noArg = c;
+            if (isAnnotated(c, RLP_CREATOR) && (creator == null || creator.getParameters().size() < c.getParameters().size()))
+                creator = c;
+        }
+
+        if (creator != null) {
+            StringBuilder sb = new StringBuilder();
+            List<? extends VariableElement> params = creator.getParameters();
+            appendChildren(sb, type, params.size());
+            sb.append("        return new ").append(type).append("(");
+            for (int i = 0; i < params.size(); i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(decodeExpr(params.get(i).asType(), "c" + i));
+                children.add(new Child(params.get(i).asType(), "a.a" + i + " = %s"));
+            }
+            sb.append(");\n");
+            return sb.toString();
+        }
+
+        String[] props = props(t);
+        if (props == null || noArg == null || t.getModifiers().contains(Modifier.ABSTRACT))
+            return null;
+        StringBuilder sb = new StringBuilder();
+        appendChildren(sb, type, props.length);
+        sb.append("        ").append(type).append(" o = new ").append(type).append("();\n");
+        for (int i = 0; i < props.length; i++) {
+            VariableElement field = field(t, props[i]);
+            if (field == null)
+                return null;
+            ExecutableElement setter = setter(t, props[i]);
+            Child child;
+            if (setter != null) {
+                child = new Child(setter.getParameters().get(0).asType(), "o." + setter.getSimpleName() + "(%s)");
+            } else if (accessible(field) && !field.getModifiers().contains(Modifier.FINAL)) {
+                child = new Child(field.asType(), "o." + props[i] + " = %s");
+            } else {
+                return null;
+            }
+            sb.append("        ").append(String.format(child.target, decodeExpr(child.type, "c" + i))).append(";\n");
+            children.add(child);
+        }
+        sb.append("        return o;\n");
+        return sb.toString();
+    }
+
+    // priority follows RlpWriter.writeObject: RlpWritable, static @RlpWriter, @RlpProps
+    // values of properties written as children are added to children
+    private String encodeBody(TypeElement t, List<String> children) {
+        if (processingEnv.getTypeUtils().isAssignable(t.asType(), erasure(RLP_WRITABLE)))
+            return "        return o.writeToBuf(buf);\n";
+        for (ExecutableElement m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+            if (!isAnnotated(m, RLP_WRITER))
+                continue;
+            if (!m.getModifiers().contains(Modifier.STATIC) || !accessible(m) || m.getParameters().size() != 2
+                    || m.getReturnType().getKind() != TypeKind.INT
+                    || !processingEnv.getTypeUtils().isAssignable(t.asType(), m.getParameters().get(0).asType())
+                    || !processingEnv.getTypeUtils().isAssignable(erasure(RLP_BUFFER), m.getParameters().get(1).asType()))
+                return null;
+            return "        return " + t.getQualifiedName() + "." + m.getSimpleName() + "(o, buf);\n";
+        }
+
+        String[] props = props(t);
+        if (props == null)
+            return null;
+        StringBuilder sb = new StringBuilder();
+        sb.append("        buf.allocateListPrefix();\n");
+        sb.append("        int size = 0;\n");
+        for (String prop : props) {
+            VariableElement field = field(t, prop);
+            if (field == null)
+                return null;
+            ExecutableElement getter = getter(t, prop, field.asType());
+            String value;
+            if (getter != null) {
+                value = "o." + getter.getSimpleName() + "()";
+            } else if (accessible(field)) {
+                value = "o." + prop;
+            } else {
+                return null;
+            }
+            sb.append("        size += ").append(encodeExpr(field.asType(), value)).append(";\n");
+            children.add(value);
+        }
+        sb.append("        return size + buf.writeListPrefix(size);\n");
+        return sb.toString();
+    }
+
+    // children of the rlp list are c0, c1 ... cn, size of the list should be exactly n + 1
+    private static void appendChildren(StringBuilder sb, String type, int n) {
+        String mismatch = "            throw new RlpDecodeException(\"arguments of " + type + " length not match to rlp list size\");\n";
+        sb.append("        if (StreamId.isNull(streamId))\n")
+                .append("            return null;\n")
+                .append("        if (!StreamId.isList(streamId))\n")
+                .append("            throw new RlpDecodeException(\"rlp list expected when decode as class ").append(type).append("\");\n");
+        String prev = "streamId";
+        for (int i = 0; i < n; i++) {
+            sb.append("        long c").append(i).append(" = StreamId.iterateList(bin, streamId, ").append(prev).append(");\n")
+                    .append("        if (StreamId.isEOF(c").append(i).append("))\n")
+                    .append(mismatch);
+            prev = "c" + i;
+        }
+        sb.append("        if (!StreamId.isEOF(StreamId.iterateList(bin, streamId, ").append(prev).append(")))\n")
+                .append(mismatch);
+    }
+
+    // begin, typeAt, set, setLong, setBoolean and finish of ListDecoder,
+    // state is the instance for properties or a class of typed fields for constructor arguments, so primitives are not boxed
+    // null if a child is a primitive not decodable
+    private String listDecoderMembers(TypeElement t, List<Child> children) {
+        String type = t.getQualifiedName().toString();
+        // constructor arguments are set into fields of Args, see decodeBody
+        boolean byConstructor = children.get(0).target.startsWith("a.");
+        String state = byConstructor ? "Args" : type;
+        String local = byConstructor ? "a" : "o";
+        String mismatch = "throw new RlpDecodeException(\"arguments of " + type + " length not match to rlp list size\");\n";
+        StringBuilder typeAt = new StringBuilder();
+        StringBuilder set = new StringBuilder();
+        StringBuilder setLong = new StringBuilder();
+        StringBuilder setBoolean = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i < children.size(); i++) {
+            Child c = children.get(i);
+            String erased = processingEnv.getTypeUtils().erasure(c.type).toString();
+            String boxed = boxedName(c.type.getKind());
+            if (c.type.getKind().isPrimitive() && boxed == null)
+                return null;
+            String cs = "            case " + i + ":\n                ";
+            typeAt.append(cs).append("return ").append(erased).append(".class;\n");
+            set.append(cs).append(String.format(c.target, "(" + (boxed == null ? erased : boxed) + ") value"))
+                    .append(";\n                return;\n");
+            if (c.type.getKind() == TypeKind.BOOLEAN) {
+                setBoolean.append(cs).append(String.format(c.target, "value")).append(";\n                return;\n");
+            } else if (boxed != null) {
+                String v = c.type.getKind() == TypeKind.LONG ? "value" : "(" + erased + ") value";
+                setLong.append(cs).append(String.format(c.target, v)).append(";\n                return;\n");
+            }
+            fields.append("        ").append(erased).append(" a").append(i).append(";\n");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (byConstructor) {
+            sb.append("\n    // constructor arguments of frames\n")
+                    .append("    private static final class Args {\n")
+                    .append(fields)
+                    .append("    }\n");
+        }
+        sb.append("\n    @Override\n")
+                .append("    public Object begin() {\n")
+                .append("        return new ").append(state).append("();\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Class<?> typeAt(int i) {\n")
+                .append("        switch (i) {\n")
+                .append(typeAt)
+                .append("            default:\n")
+                .append("                ").append(mismatch)
+                .append("        }\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void set(Object state, int i, Object value) {\n");
+        appendSwitch(sb, state, local, set, "throw new IndexOutOfBoundsException(String.valueOf(i));\n");
+        if (setLong.length() > 0) {
+            sb.append("    @Override\n")
+                    .append("    public void setLong(Object state, int i, long value) {\n");
+            appendSwitch(sb, state, local, setLong, "ListDecoder.super.setLong(state, i, value);\n");
+        }
+        if (setBoolean.length() > 0) {
+            sb.append("    @Override\n")
+                    .append("    public void setBoolean(Object state, int i, boolean value) {\n");
+            appendSwitch(sb, state, local, setBoolean, "ListDecoder.super.setBoolean(state, i, value);\n");
+        }
+        sb.append("    @Override\n")
+                .append("    public ").append(type).append(" finish(Object state, int c) {\n")
+                .append("        if (c != ").append(children.size()).append(")\n")
+                .append("            ").append(mismatch);
+        if (byConstructor) {
+            sb.append("        Args a = (Args) state;\n")
+                    .append("        return new ").append(type).append("(");
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append("a.a").append(i);
+            }
+            sb.append(");\n");
+        } else {
+            sb.append("        return (").append(type).append(") state;\n");
+        }
+        sb.append("    }\n");
+        return sb.toString();
+    }
+
+    private static void appendSwitch(StringBuilder sb, String state, String local, CharSequence cases, String otherwise) {
+        sb.append("        ").append(state).append(" ").append(local).append(" = (").append(state).append(") state;\n")
+                .append("        switch (i) {\n")
+                .append(cases)
+                .append("            default:\n")
+                .append("                ").append(otherwise)
+                .append("        }\n")
+                .append("    }\n\n");
+    }
+
+    // size and get of ListWriter, values are expressions of o
+    private static String listWriterMembers(String type, List<String> values) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n    @Override\n")
+                .append("    public int size() {\n")
+                .append("        return ").append(values.size()).append(";\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Object get(Object value, int i) {\n")
+                .append("        ").append(type).append(" o = (").append(type).append(") value;\n")
+                .append("        switch (i) {\n");
+        for (int i = 0; i < values.size(); i++) {
+            sb.append("            case ").append(i).append(":\n")
+                    .append("                return ").append(values.get(i)).append(";\n");
+        }
+        sb.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(String.valueOf(i));\n")
+                .append("        }\n")
+                .append("    }\n");
+        return sb.toString();
+    }
+
+    // wrapper of primitives decodable, null for other types
+    private static String boxedName(TypeKind kind) {
+        switch (kind) {
+            case LONG:
+                return "Long";
+            case INT:
+                return "Integer";
+            case SHORT:
+                return "Short";
+            case BYTE:
+                return "Byte";
+            case BOOLEAN:
+                return "Boolean";
+            default:
+                return null;
+        }
+    }
+
+    private String decodeExpr(TypeMirror type, String id) {
+        switch (type.getKind()) {
+            case LONG:
+                return "StreamId.asLong(bin, " + id + ")";
+            case INT:
+                return "StreamId.asInt(bin, " + id + ")";
+            case SHORT:
+                return "StreamId.asShort(bin, " + id + ")";
+            case BYTE:
+                return "StreamId.asByte(bin, " + id + ")";
+            case BOOLEAN:
+                return "StreamId.asBoolean(bin, " + id + ")";
+            default:
+                break;
+        }
+        String erased = processingEnv.getTypeUtils().erasure(type).toString();
+        switch (erased) {
+            case "byte[]":
+                return "StreamId.asBytes(bin, " + id + ")";
+            case "java.lang.String":
+                return "StreamId.asString(bin, " + id + ")";
+            case "java.math.BigInteger":
+                return "StreamId.asBigInteger(bin, " + id + ")";
+            default:
+                return "StreamId.as(bin, " + id + ", " + erased + ".class)";
+        }
+    }
+
+    private String encodeExpr(TypeMirror type, String value) {
+        switch (type.getKind()) {
+            case LONG:
+                return "buf.writeLong(" + value + ")";
+            case INT:
+                return "buf.writeInt(" + value + ")";
+            case SHORT:
+                return "buf.writeShort(" + value + ")";
+            case BYTE:
+                return "buf.writeByte(" + value + ")";
+            case BOOLEAN:
+                return "buf.writeLong(" + value + " ? 1L : 0L)";
+            default:
+                break;
+        }
+        switch (processingEnv.getTypeUtils().erasure(type).toString()) {
+            case "byte[]":
+                return "buf.writeBytes(" + value + ")";
+            case "java.math.BigInteger":
+                return "buf.writeBigInt(" + value + ")";
+            default:
+                return "buf.writeObject(" + value + ")";
+        }
+    }
+
+    private String[] props(TypeElement t) {
+        for (AnnotationMirror a : t.getAnnotationMirrors()) {
+            if (!((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(RLP_PROPS))
+                continue;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e :
+                    processingEnv.getElementUtils().getElementValuesWithDefaults(a).entrySet()) {
+                if (!e.getKey().getSimpleName().contentEquals("value"))
+                    continue;
+                List<?> values = (List<?>) e.getValue().getValue();
+                String[] r = new String[values.size()];
+                for (int i = 0; i < r.length; i++) {
+                    r[i] = (String) ((AnnotationValue) values.get(i)).getValue();
+                }
+                return r;
+            }
+        }
+        return null;
+    }
+
+    private static VariableElement field(TypeElement t, String name) {
+        for (VariableElement f : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+            if (f.getSimpleName().contentEquals(name) && !f.getModifiers().contains(Modifier.STATIC))
+                return f;
+        }
+        return null;
+    }
+
+    private ExecutableElement setter(TypeElement t, String prop) {
+        String name = "set" + capitalize(prop);
+        for (ExecutableElement m : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(t))) {
+            if (m.getSimpleName().contentEquals(name) && m.getParameters().size() == 1
+                    && m.getModifiers().contains(Modifier.PUBLIC) && !m.getModifiers().contains(Modifier.STATIC))
+                return m;
+        }
+        return null;
+    }
+
+    private ExecutableElement getter(TypeElement t, String prop, TypeMirror type) {
+        String get = "get" + capitalize(prop);
+        String is = "is" + capitalize(prop);
+        for (ExecutableElement m : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(t))) {
+            boolean named = m.getSimpleName().contentEquals(get)
+                    || (type.getKind() == TypeKind.BOOLEAN && m.getSimpleName().contentEquals(is));
+            if (named && m.getParameters().isEmpty()
+                    && m.getModifiers().contains(Modifier.PUBLIC) && !m.getModifiers().contains(Modifier.STATIC)
+                    && processingEnv.getTypeUtils().isSameType(m.getReturnType(), type))
+                return m;
+        }
+        return null;
+    }
+
+    private TypeMirror erasure(String type) {
+        return processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement(type).asType());
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        return processingEnv.getTypeUtils().erasure(type).toString().equals(name);
+    }
+
+    // generated codec lives in the same package
+    private static boolean accessible(Element e) {
+        return !e.getModifiers().contains(Modifier.PRIVATE);
+    }
+
+    private static boolean isAnnotated(Element e, String annotation) {
+        for (AnnotationMirror a : e.getAnnotationMirrors()) {
+            if (((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation))
+                return true;
+        }
+        return false;
+    }
+
+    private static String capitalize(String s) {
+        return s.substring(0, 1).toUpperCase() + s.substring(1);
+    }
+}
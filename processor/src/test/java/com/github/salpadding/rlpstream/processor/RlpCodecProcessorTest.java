@@ -0,0 +1,186 @@
+package com.github.salpadding.rlpstream.processor;
+
+import com.github.salpadding.rlpstream.ListDecoder;
+import com.github.salpadding.rlpstream.ListWriter;
+import com.github.salpadding.rlpstream.Rlp;
+import com.github.salpadding.rlpstream.RlpCodec;
+import com.github.salpadding.rlpstream.RlpWritable;
+import com.github.salpadding.rlpstream.StreamId;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.tools.*;
+import java.io.File;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class RlpCodecProcessorTest {
+    private static final String ACCOUNT = "package sample;\n" +
+            "import com.github.salpadding.rlpstream.annotation.RlpProps;\n" +
+            "import java.math.BigInteger;\n" +
+            "@RlpProps({\"nonce\", \"balance\", \"code\", \"name\", \"flag\", \"children\"})\n" +
+            "public class Account {\n" +
+            "    public long nonce;\n" +
+            "    private BigInteger balance;\n" +
+            "    public byte[] code;\n" +
+            "    private String name;\n" +
+            "    private boolean flag;\n" +
+            "    public Account[] children;\n" +
+            "    public Account() {}\n" +
+            "    public BigInteger getBalance() { return balance; }\n" +
+            "    public void setBalance(BigInteger balance) { this.balance = balance; }\n" +
+            "    public String getName() { return name; }\n" +
+            "    public void setName(String name) { this.name = name; }\n" +
+            "    public boolean isFlag() { return flag; }\n" +
+            "    public void setFlag(boolean flag) { this.flag = flag; }\n" +
+            "}\n";
+
+    private static final String PAIR = "package sample;\n" +
+            "import com.github.salpadding.rlpstream.RlpBuffer;\n" +
+            "import com.github.salpadding.rlpstream.annotation.RlpCreator;\n" +
+            "import com.github.salpadding.rlpstream.annotation.RlpWriter;\n" +
+            "public class Pair {\n" +
+            "    public final long a;\n" +
+            "    public final String b;\n" +
+            "    @RlpCreator\n" +
+            "    public Pair(long a, String b) { this.a = a; this.b = b; }\n" +
+            "    @RlpWriter\n" +
+            "    public static int writeToBuf(Pair p, RlpBuffer buf) { return buf.writeList(p.a, p.b); }\n" +
+            "}\n";
+
+    private static final String HIDDEN = "package sample;\n" +
+            "import com.github.salpadding.rlpstream.annotation.RlpProps;\n" +
+            "@RlpProps({\"value\"})\n" +
+            "public class Hidden {\n" +
+            "    private long value;\n" +
+            "}\n";
+
+    @Test
+    public void testGenerateCodecs() throws Exception {
+        Path dir = Files.createTempDirectory("rlp-codec");
+        try {
+            testGenerateCodecs(dir);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private void testGenerateCodecs(Path dir) throws Exception {
+        compile(dir);
+
+        List<String> services = Files.readAllLines(dir.resolve(RlpCodecProcessor.SERVICE_FILE), StandardCharsets.UTF_8);
+        assertEquals(Arrays.asList("sample.AccountRlpCodec", "sample.PairRlpCodec"), services);
+        assertFalse(Files.exists(dir.resolve("sample/HiddenRlpCodec.java")));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> accountClass = loader.loadClass("sample.Account");
+            Object account = accountClass.newInstance();
+            accountClass.getDeclaredField("nonce").setLong(account, 7L);
+            accountClass.getMethod("setBalance", BigInteger.class).invoke(account, BigInteger.TEN.pow(20));
+            accountClass.getDeclaredField("code").set(account, new byte[]{1, 2, 3});
+            accountClass.getMethod("setName", String.class).invoke(account, "alice");
+            accountClass.getMethod("setFlag", boolean.class).invoke(account, true);
+            Object children = java.lang.reflect.Array.newInstance(accountClass, 1);
+            java.lang.reflect.Array.set(children, 0, accountClass.newInstance());
+            accountClass.getDeclaredField("children").set(account, children);
+            RlpCodec<Object> accountCodec = codec(loader, "sample.AccountRlpCodec");
+            assertRoundTrip(accountCodec, account);
+            assertTrue(accountCodec instanceof ListWriter);
+            assertFrames(accountCodec, account);
+
+            Class<?> pairClass = loader.loadClass("sample.Pair");
+            Object pair = pairClass.getConstructor(long.class, String.class).newInstance(255L, "pair");
+            RlpCodec<Object> pairCodec = codec(loader, "sample.PairRlpCodec");
+            assertRoundTrip(pairCodec, pair);
+            // written by @RlpWriter, a leaf of frames
+            assertFalse(pairCodec instanceof ListWriter);
+            assertFrames(pairCodec, pair);
+        }
+    }
+
+    // generated codecs should produce the same encoding as reflective codecs
+    private static void assertRoundTrip(RlpCodec<Object> codec, Object o) {
+        byte[] expected = Rlp.encode(o);
+        byte[] encoded = Rlp.encode((RlpWritable) buf -> codec.encode(buf, o));
+        assertArrayEquals(expected, encoded);
+
+        Object decoded = codec.decode(encoded, StreamId.decodeElement(encoded, 0, encoded.length, true));
+        assertSame(codec.type(), decoded.getClass());
+        assertArrayEquals(expected, Rlp.encode(decoded));
+    }
+
+    // children exposed by ListWriter are written as the same list, and ListDecoder is expanded as frames
+    // when decoding a direct buffer, the codec is registered for its class
+    private static void assertFrames(RlpCodec<Object> codec, Object o) {
+        byte[] expected = Rlp.encode(o);
+        if (codec instanceof ListWriter) {
+            ListWriter w = (ListWriter) codec;
+            Object[] children = new Object[w.size()];
+            for (int i = 0; i < children.length; i++)
+                children[i] = w.get(o, i);
+            assertArrayEquals(expected, Rlp.encode(children));
+        }
+
+        assertTrue(codec instanceof ListDecoder);
+        Rlp.registerDecoder(codec.type(), codec);
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        direct.put(expected).flip();
+        Object decoded = Rlp.decode(direct, codec.type());
+        assertSame(codec.type(), decoded.getClass());
+        assertArrayEquals(expected, Rlp.encode(decoded));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RlpCodec<Object> codec(ClassLoader loader, String name) throws Exception {
+        return (RlpCodec<Object>) loader.loadClass(name).newInstance();
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(p);
+        }
+    }
+
+    private static void compile(Path dir) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<JavaFileObject> sources = Arrays.asList(
+                source("sample/Account.java", ACCOUNT),
+                source("sample/Pair.java", PAIR),
+                source("sample/Hidden.java", HIDDEN)
+        );
+        List<String> options = Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", dir.toString(),
+                "-s", dir.toString()
+        );
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, sources);
+        task.setProcessors(Collections.singletonList(new RlpCodecProcessor()));
+        assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+    }
+
+    private static JavaFileObject source(String path, String code) {
+        return new SimpleJavaFileObject(new File(path).toURI(), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+}
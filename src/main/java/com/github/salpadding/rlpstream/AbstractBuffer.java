@@ -3,60 +3,28 @@ package com.github.salpadding.rlpstream;
 import lombok.NonNull;
 
 import java.io.Closeable;
-import java.io.DataOutput;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-
-import static com.github.salpadding.rlpstream.RlpWriter.MAX_PREFIX_SIZE;
-import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
 
+// write target of encoding, bytes written and list prefixes are handled by subclasses
+// buffers holding the whole encoding in memory extend GrowableBuffer
 abstract class AbstractBuffer implements RlpBuffer, Closeable {
     abstract void write(byte b);
 
-    // pre allocate list prefix
-    void allocateListPrefix() {
-        for (int i = 0; i < MAX_PREFIX_SIZE; i++)
-            write((byte) 0);
-    }
-
-    abstract int getSize();
-
-    abstract void setSize(int size);
-
-    int writeListPrefix(int size) {
-        int prevSize = this.getSize();
-        setSize(prevSize - size - MAX_PREFIX_SIZE);
-        int prefixSize = writePrefix(this, size, false, true);
-        int shifts = MAX_PREFIX_SIZE - prefixSize;
-        setSize(prevSize);
-        leftShift(prevSize - size, size, shifts);
-        setSize(prevSize - shifts);
-        return prefixSize;
-    }
+    abstract void write(byte[] bytes, int offset, int size);
 
-    void leftShift(int offset, int size, int shifts) {
-        if (shifts == 0)
-            return;
-        if (offset < 0)
-            throw new UnsupportedOperationException("offset should be positive");
-        if (offset >= getSize())
-            throw new UnsupportedOperationException("memory access overflow");
-        if (size < 0)
-            throw new UnsupportedOperationException("size should be positive");
-        if (size > getSize() - offset)
-            throw new UnsupportedOperationException("size too large");
-        if (shifts < 0)
-            throw new UnsupportedOperationException("shift should be non-negative");
-        if (shifts > offset)
-            throw new UnsupportedOperationException("shifts too large");
-        primitiveLeftShift(offset, size, shifts);
-    }
+    // write lowest width bytes of value in big endian
+    abstract void putLong(long value, int width);
 
-    abstract void primitiveLeftShift(int offset, int size, int shifts);
+    // make sure n more bytes could be written without growing
+    abstract void ensureCapacity(int n);
 
-    abstract byte[] toByteArray();
+    // open a list, elements of the list are written next
+    @Override
+    public abstract void allocateListPrefix();
 
-    abstract void intoStream(DataOutput output);
+    // close the list opened last, return the prefix size
+    @Override
+    public abstract int writeListPrefix(int size);
 
     @Override
     public int writeRaw(@NonNull byte[] bytes) {
@@ -83,6 +51,13 @@ abstract class AbstractBuffer implements RlpBuffer, Closeable {
         return RlpWriter.writeBytes(this, bytes);
     }
 
+    @Override
+    public int writeBytes(byte[] bytes, int offset, int size) {
+        if (offset < 0 || size < 0 || offset > bytes.length - size)
+            throw new IndexOutOfBoundsException("offset " + offset + " size " + size + " out of bounds " + bytes.length);
+        return RlpWriter.writeBytes(this, bytes, offset, size);
+    }
+
     @Override
     public int writeLong(long l) {
         return RlpWriter.writeLong(this, l);
@@ -90,7 +65,7 @@ abstract class AbstractBuffer implements RlpBuffer, Closeable {
 
     @Override
     public int writeString(String s) {
-        return RlpWriter.writeBytes(this, s.getBytes(StandardCharsets.UTF_8));
+        return RlpWriter.writeString(this, s);
     }
 
     @Override
@@ -0,0 +1,106 @@
+package com.github.salpadding.rlpstream;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// lock free pool of off heap buffers, so encoding doesn't malloc and free native memory every time
+// buffers are grouped by capacity into power of two size classes, each class has a fixed number of slots
+// a released buffer is freed if its class is full, it is larger than MAX_POOLED_CAP or retained bytes would exceed maxRetained
+final class BufferPool {
+    private BufferPool() {
+    }
+
+    static final int MIN_POOLED_CAP = RlpWriter.DEFAULT_INITIAL_CAP;
+    static final int MAX_POOLED_CAP = 1 << 20;
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_CAP / MIN_POOLED_CAP) + 1;
+    private static final int SLOTS = Math.max(4, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2));
+
+    static final long DEFAULT_MAX_RETAINED = 16L << 20;
+
+    static volatile long maxRetained = DEFAULT_MAX_RETAINED;
+
+    private static final AtomicReferenceArray<UnsafeBuf> slots = new AtomicReferenceArray<>(CLASSES * SLOTS);
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final AtomicLong retained = new AtomicLong();
+    private static final AtomicLong peak = new AtomicLong();
+
+    // buffer with size 0 and capacity >= expectedSize if one is pooled, scan starts at the smallest class fitting expectedSize
+    // a new buffer of the capacity clamped to [MIN_POOLED_CAP, MAX_POOLED_CAP] is allocated if none fits,
+    // expectedSize is only a hint, so a huge one doesn't allocate a huge buffer for a small encoding
+    static UnsafeBuf acquire(int expectedSize) {
+        int start = (int) Thread.currentThread().getId() & (SLOTS - 1);
+        for (int c = classOf(expectedSize); c < CLASSES; c++) {
+            for (int i = 0; i < SLOTS; i++) {
+                int slot = c * SLOTS + ((start + i) & (SLOTS - 1));
+                if (slots.get(slot) == null)
+                    continue;
+                UnsafeBuf buf = slots.getAndSet(slot, null);
+                if (buf != null) {
+                    retained.addAndGet(-buf.getCap());
+                    hits.increment();
+                    return buf;
+                }
+            }
+        }
+        misses.increment();
+        return new UnsafeBuf(Math.max(Math.min(expectedSize, MAX_POOLED_CAP), MIN_POOLED_CAP));
+    }
+
+    // smallest class whose buffers all have capacity >= size, CLASSES if size exceeds every class
+    static int classOf(int size) {
+        if (size <= MIN_POOLED_CAP)
+            return 0;
+        return Math.min(32 - Integer.numberOfLeadingZeros((size - 1) / MIN_POOLED_CAP), CLASSES);
+    }
+
+    static void release(UnsafeBuf buf) {
+        int cap = buf.getCap();
+        if (buf.isClosed())
+            return;
+        if (cap < MIN_POOLED_CAP || cap > MAX_POOLED_CAP || !reserve(cap)) {
+            buf.close();
+            return;
+        }
+        buf.setSize(0);
+        // floor size class, buffers grown to odd capacities still fit the class they are counted in
+        int c = Integer.numberOfTrailingZeros(Integer.highestOneBit(cap) / MIN_POOLED_CAP);
+        int start = (int) Thread.currentThread().getId() & (SLOTS - 1);
+        for (int i = 0; i < SLOTS; i++) {
+            if (slots.compareAndSet(c * SLOTS + ((start + i) & (SLOTS - 1)), null, buf))
+                return;
+        }
+        retained.addAndGet(-cap);
+        buf.close();
+    }
+
+    private static boolean reserve(int cap) {
+        while (true) {
+            long r = retained.get();
+            if (r + cap > maxRetained)
+                return false;
+            if (retained.compareAndSet(r, r + cap)) {
+                long p;
+                while ((p = peak.get()) < r + cap && !peak.compareAndSet(p, r + cap)) ;
+                return true;
+            }
+        }
+    }
+
+    static BufferPoolStats stats() {
+        return new BufferPoolStats(hits.sum(), misses.sum(), retained.get(), peak.get());
+    }
+
+    // free all pooled buffers
+    static void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            UnsafeBuf buf = slots.getAndSet(i, null);
+            if (buf != null) {
+                retained.addAndGet(-buf.getCap());
+                buf.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.salpadding.rlpstream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+// snapshot of off heap encode buffer pool, counters are cumulative since class loading
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class BufferPoolStats {
+    // acquires served by a pooled buffer
+    private final long hits;
+    // acquires which allocated a new buffer
+    private final long misses;
+    // off heap bytes held by pooled buffers
+    private final long retainedBytes;
+    // max retained bytes ever
+    private final long peakRetainedBytes;
+}
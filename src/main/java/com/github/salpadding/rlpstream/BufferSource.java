@@ -0,0 +1,114 @@
+package com.github.salpadding.rlpstream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// ordered byte buffer segments addressed by global offset
+// if every segment but the last has the same power of two size, segment of offset is found by shift, otherwise by binary search
+// array backed and direct segments are read by their single segment source, elements inside one segment are decoded by it
+final class BufferSource implements RlpSource {
+    private final ByteBuffer[] segments;
+    // source of each segment, null if segment is neither array backed nor direct, e.g. read only heap buffer
+    private final RlpSource[] parts;
+    // global offset of first byte of each segment, followed by total size
+    private final long[] starts;
+    // log2 of uniform segment size, -1 if not uniform
+    private final int shift;
+
+    BufferSource(ByteBuffer[] segments) {
+        this.segments = new ByteBuffer[segments.length];
+        this.parts = new RlpSource[segments.length];
+        this.starts = new long[segments.length + 1];
+        for (int i = 0; i < segments.length; i++) {
+            ByteBuffer seg = segments[i].slice();
+            this.segments[i] = seg;
+            if (seg.hasArray())
+                parts[i] = new BytesSource(seg.array(), seg.arrayOffset(), seg.capacity());
+            else if (seg.isDirect())
+                parts[i] = new DirectSource(seg);
+            starts[i + 1] = starts[i] + seg.capacity();
+        }
+        this.shift = uniformShift();
+    }
+
+    private int uniformShift() {
+        if (segments.length == 0)
+            return -1;
+        int first = segments[0].capacity();
+        if (Integer.bitCount(first) != 1)
+            return -1;
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (segments[i].capacity() != first)
+                return -1;
+        }
+        if (segments[segments.length - 1].capacity() > first)
+            return -1;
+        return Integer.numberOfTrailingZeros(first);
+    }
+
+    int segmentOf(long index) {
+        if (shift >= 0)
+            return (int) (index >>> shift);
+        int i = Arrays.binarySearch(starts, index);
+        // skip empty segments
+        if (i >= 0) {
+            while (i < segments.length - 1 && starts[i + 1] == index)
+                i++;
+            return i;
+        }
+        return -i - 2;
+    }
+
+    // segment contains len bytes from index, -1 if the range straddles segments or the segment has no single source
+    int segmentOf(long index, long len) {
+        if (index < 0 || len <= 0 || index > size() - len)
+            return -1;
+        int s = segmentOf(index);
+        return index + len <= starts[s + 1] && parts[s] != null ? s : -1;
+    }
+
+    RlpSource part(int segment) {
+        return parts[segment];
+    }
+
+    long startOf(int segment) {
+        return starts[segment];
+    }
+
+    @Override
+    public long size() {
+        return starts[segments.length];
+    }
+
+    @Override
+    public byte get(long index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds " + size());
+        int s = segmentOf(index);
+        RlpSource part = parts[s];
+        return part != null ? part.get(index - starts[s]) : segments[s].get((int) (index - starts[s]));
+    }
+
+    @Override
+    public void get(long index, byte[] dst, int off, int len) {
+        if (index < 0 || len < 0 || index > size() - len)
+            throw new IndexOutOfBoundsException("index " + index + " length " + len + " out of bounds " + size());
+        int s = segmentOf(index);
+        while (len > 0) {
+            ByteBuffer seg = segments[s];
+            int pos = (int) (index - starts[s]);
+            int n = Math.min(len, seg.capacity() - pos);
+            if (parts[s] != null) {
+                parts[s].get(pos, dst, off, n);
+            } else {
+                ByteBuffer dup = seg.duplicate();
+                dup.position(pos);
+                dup.get(dst, off, n);
+            }
+            index += n;
+            off += n;
+            len -= n;
+            s++;
+        }
+    }
+}
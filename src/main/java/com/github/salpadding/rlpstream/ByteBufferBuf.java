@@ -0,0 +1,66 @@
+package com.github.salpadding.rlpstream;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static com.github.salpadding.rlpstream.RlpWriter.prefixSize;
+import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
+
+// second pass of two pass encoding into a ByteBuffer without accessible array, e.g. direct buffers, same as ExactBuf
+// bytes are put from the position of target, target itself is not modified
+final class ByteBufferBuf extends AbstractBuffer {
+    private final ByteBuffer out;
+    private final int base;
+    private final ListSizes sizes;
+
+    ByteBufferBuf(ByteBuffer target, int cap, ListSizes sizes) {
+        this.out = target.duplicate();
+        this.base = out.position();
+        this.out.limit(base + cap);
+        this.sizes = sizes;
+    }
+
+    @Override
+    void write(byte b) {
+        try {
+            out.put(b);
+        } catch (BufferOverflowException e) {
+            throw ExactBuf.sizeMismatch();
+        }
+    }
+
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        ensureCapacity(size);
+        out.put(bytes, offset, size);
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++)
+            out.put((byte) (value >>> (8 * (width - i - 1))));
+    }
+
+    @Override
+    void ensureCapacity(int n) {
+        if (n > out.remaining())
+            throw ExactBuf.sizeMismatch();
+    }
+
+    @Override
+    public void allocateListPrefix() {
+        writePrefix(this, sizes.open(), false, true);
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        sizes.close(size);
+        return prefixSize(size);
+    }
+
+    void checkFull() {
+        if (out.hasRemaining())
+            throw ExactBuf.sizeMismatch();
+    }
+}
@@ -7,8 +7,8 @@ import lombok.SneakyThrows;
 
 import java.io.DataOutput;
 
-final class BytesBuf extends AbstractBuffer {
-    static AbstractBuffer alloc(int size) {
+final class BytesBuf extends GrowableBuffer {
+    static BytesBuf alloc(int size) {
         return new BytesBuf(new byte[size]);
     }
 
@@ -22,20 +22,39 @@ final class BytesBuf extends AbstractBuffer {
     @Setter
     private int size;
 
-    private void tryExtend() {
-        if (size >= bin.length) {
-            byte[] tmp = new byte[size * 2];
-            System.arraycopy(bin, 0, tmp, 0, bin.length);
-            this.bin = tmp;
-        }
+    @Override
+    void ensureCapacity(int n) {
+        if (n <= bin.length - size)
+            return;
+        long newCap = Math.max((long) bin.length * 2, (long) size + n);
+        if (newCap > Integer.MAX_VALUE)
+            throw new UnsupportedOperationException("memory overflow");
+        byte[] tmp = new byte[(int) newCap];
+        System.arraycopy(bin, 0, tmp, 0, size);
+        this.bin = tmp;
     }
 
     @Override
     public void write(byte b) {
-        tryExtend();
+        if (size == bin.length)
+            ensureCapacity(1);
         bin[size++] = b;
     }
 
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        ensureCapacity(size);
+        System.arraycopy(bytes, offset, bin, this.size, size);
+        this.size += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++)
+            bin[size++] = (byte) (value >>> (8 * (width - i - 1)));
+    }
+
 
     public void primitiveLeftShift(int offset, int size, int shifts) {
         System.arraycopy(bin, offset, bin, offset - shifts, size);
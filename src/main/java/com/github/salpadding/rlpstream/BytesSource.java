@@ -0,0 +1,37 @@
+package com.github.salpadding.rlpstream;
+
+// byte array or heap byte buffer, offsets of source are relative to offset of array
+final class BytesSource implements RlpSource {
+    final byte[] bin;
+    final int offset;
+    private final int length;
+
+    BytesSource(byte[] bin) {
+        this(bin, 0, bin.length);
+    }
+
+    BytesSource(byte[] bin, int offset, int length) {
+        this.bin = bin;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public byte get(long index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds " + length);
+        return bin[offset + (int) index];
+    }
+
+    @Override
+    public void get(long index, byte[] dst, int off, int len) {
+        if (index < 0 || len < 0 || index > length - len)
+            throw new IndexOutOfBoundsException("index " + index + " length " + len + " out of bounds " + length);
+        System.arraycopy(bin, offset + (int) index, dst, off, len);
+    }
+}
@@ -0,0 +1,919 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import lombok.SneakyThrows;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+// generate codecs which call constructors, getters and setters directly
+// every accessor is spun into a dedicated class by LambdaMetafactory, primitive properties are read and written without boxing
+// members which cannot be linked from here(non public, loaded by foreign class loader) are accessed by method handles
+// returns null when a codec cannot be generated, the caller should fallback to reflective codec
+final class CodecGenerator {
+    private CodecGenerator() {
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    interface Instantiator {
+        Object create();
+    }
+
+    interface StaticWriter {
+        int write(Object o, RlpBuffer buf);
+    }
+
+    interface ObjectGetter {
+        Object get(Object o);
+    }
+
+    // long, int, short and byte getters are widened to long
+    interface LongGetter {
+        long get(Object o);
+    }
+
+    interface BooleanGetter {
+        boolean get(Object o);
+    }
+
+    interface ObjectSetter {
+        void set(Object o, Object v);
+    }
+
+    interface LongSetter {
+        void set(Object o, long v);
+    }
+
+    interface IntSetter {
+        void set(Object o, int v);
+    }
+
+    interface ShortSetter {
+        void set(Object o, short v);
+    }
+
+    interface ByteSetter {
+        void set(Object o, byte v);
+    }
+
+    interface BooleanSetter {
+        void set(Object o, boolean v);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RlpDecoder<T> staticMethodDecoder(Method method) {
+        try {
+            if (!canLink(method.getDeclaringClass(), method.getModifiers()))
+                return null;
+            return spin(
+                    RlpDecoder.class, "decode",
+                    MethodType.methodType(Object.class, byte[].class, long.class),
+                    LOOKUP.unreflect(method)
+            );
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    static ObjectWriter staticMethodWriter(Method method) {
+        try {
+            if (!canLink(method.getDeclaringClass(), method.getModifiers())
+                    || method.getParameterTypes()[1] != RlpBuffer.class
+                    || method.getReturnType() != int.class)
+                return null;
+            StaticWriter w = spin(
+                    StaticWriter.class, "write",
+                    MethodType.methodType(int.class, Object.class, RlpBuffer.class),
+                    LOOKUP.unreflect(method)
+            );
+            return (buf, o) -> w.write(o, buf);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    static <T> RlpDecoder<T> constructorDecoder(Constructor<T> constructor) {
+        try {
+            constructor.setAccessible(true);
+            MethodHandle h = LOOKUP.unreflectConstructor(constructor);
+            Class<?>[] types = constructor.getParameterTypes();
+            if (types.length <= FixedArityDecoder.MAX_ARITY && FixedArityDecoder.supports(types))
+                return new FixedArityDecoder<>(constructor.getDeclaringClass(), fixedArity(h, types), types);
+            h = h.asSpreader(Object[].class, types.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return new SpreadDecoder<>(constructor.getDeclaringClass(), h, types);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    // adapt constructor to a (long, Object) pair of parameters per argument, primitives are passed by the long and references by the Object,
+    // the other one of each pair is dropped, so every constructor of n parameters is invoked exactly by the same call site of arity n
+    private static MethodHandle fixedArity(MethodHandle h, Class<?>[] types) {
+        Class<?>[] widened = new Class<?>[types.length];
+        Class<?>[] pairs = new Class<?>[types.length * 2];
+        int[] reorder = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            boolean primitive = types[i].isPrimitive();
+            widened[i] = primitive ? long.class : Object.class;
+            pairs[2 * i] = long.class;
+            pairs[2 * i + 1] = Object.class;
+            reorder[i] = primitive ? 2 * i : 2 * i + 1;
+        }
+        // long narrows to int, short and byte by casting and to boolean by the lowest bit
+        MethodHandle w = MethodHandles.explicitCastArguments(h, MethodType.methodType(Object.class, widened));
+        return MethodHandles.permuteArguments(w, MethodType.methodType(Object.class, pairs), reorder);
+    }
+
+    static <T> RlpDecoder<T> fieldsDecoder(Constructor<T> noArg, Method[] setters, Class<?>[] setterTypes, Field[] fields) {
+        try {
+            Instantiator instantiator = instantiator(noArg);
+            PropertyDecoder[] props = new PropertyDecoder[fields.length];
+            Class<?>[] types = new Class<?>[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                Class<?> type = setters[i] != null ? setterTypes[i] : fields[i].getType();
+                types[i] = type;
+                MethodHandle h = setters[i] != null ? setterHandle(setters[i]) : LOOKUP.unreflectSetter(fields[i]);
+                boolean direct = setters[i] != null
+                        && setters[i].getReturnType() == void.class
+                        && canLink(setters[i].getDeclaringClass(), setters[i].getModifiers());
+                props[i] = setter(type, h, direct);
+            }
+            return new PropsDecoder<>(noArg.getDeclaringClass(), instantiator, props, types, fields);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    static ObjectWriter fieldsWriter(Method[] getters, Field[] fields) {
+        try {
+            PropertyWriter[] props = new PropertyWriter[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                Class<?> type = getters[i] != null ? getters[i].getReturnType() : fields[i].getType();
+                MethodHandle h = getters[i] != null ? LOOKUP.unreflect(getters[i]) : LOOKUP.unreflectGetter(fields[i]);
+                boolean direct = getters[i] != null && canLink(getters[i].getDeclaringClass(), getters[i].getModifiers());
+                props[i] = getter(type, h, direct);
+            }
+            return new PropsWriter(props);
+        } catch (Throwable ignored) {
+            return null;
+        }
+    }
+
+    private static MethodHandle setterHandle(Method setter) throws IllegalAccessException {
+        MethodHandle h = LOOKUP.unreflect(setter);
+        // setters may return this for chaining
+        return h.type().returnType() == void.class ? h : h.asType(h.type().changeReturnType(void.class));
+    }
+
+    private static Instantiator instantiator(Constructor<?> noArg) throws Throwable {
+        MethodHandle h = LOOKUP.unreflectConstructor(noArg);
+        if (canLink(noArg.getDeclaringClass(), noArg.getModifiers()))
+            return spin(Instantiator.class, "create", MethodType.methodType(Object.class), h);
+        MethodHandle g = h.asType(MethodType.methodType(Object.class));
+        return () -> {
+            try {
+                return g.invokeExact();
+            } catch (Throwable e) {
+                throw new RlpDecodeException("unexpected error when create instance by constructor " + noArg);
+            }
+        };
+    }
+
+    private static PropertyWriter getter(Class<?> type, MethodHandle h, boolean direct) throws Throwable {
+        if (type == long.class || type == int.class || type == short.class || type == byte.class) {
+            long mask = type == long.class ? -1L : type == int.class ? 0xffffffffL : type == short.class ? 0xffffL : 0xffL;
+            LongGetter g = direct ?
+                    spin(LongGetter.class, "get", MethodType.methodType(long.class, Object.class), h) :
+                    longGetter(h.asType(MethodType.methodType(long.class, Object.class)));
+            return new LongGetterProperty(g, mask);
+        }
+        if (type == boolean.class) {
+            BooleanGetter g = direct ?
+                    spin(BooleanGetter.class, "get", MethodType.methodType(boolean.class, Object.class), h) :
+                    booleanGetter(h.asType(MethodType.methodType(boolean.class, Object.class)));
+            return new BooleanGetterProperty(g);
+        }
+        ObjectGetter g = direct ?
+                spin(ObjectGetter.class, "get", MethodType.methodType(Object.class, Object.class), h) :
+                objectGetter(h.asType(MethodType.methodType(Object.class, Object.class)));
+        return new ObjectGetterProperty(g, type);
+    }
+
+    private static PropertyDecoder setter(Class<?> type, MethodHandle h, boolean direct) throws Throwable {
+        if (type == long.class) {
+            MethodType t = MethodType.methodType(void.class, Object.class, long.class);
+            return new LongSetterProperty(direct ? spin(LongSetter.class, "set", t, h) : longSetter(h.asType(t)));
+        }
+        if (type == int.class) {
+            MethodType t = MethodType.methodType(void.class, Object.class, int.class);
+            return new IntSetterProperty(direct ? spin(IntSetter.class, "set", t, h) : intSetter(h.asType(t)));
+        }
+        if (type == short.class) {
+            MethodType t = MethodType.methodType(void.class, Object.class, short.class);
+            return new ShortSetterProperty(direct ? spin(ShortSetter.class, "set", t, h) : shortSetter(h.asType(t)));
+        }
+        if (type == byte.class) {
+            MethodType t = MethodType.methodType(void.class, Object.class, byte.class);
+            return new ByteSetterProperty(direct ? spin(ByteSetter.class, "set", t, h) : byteSetter(h.asType(t)));
+        }
+        if (type == boolean.class) {
+            MethodType t = MethodType.methodType(void.class, Object.class, boolean.class);
+            return new BooleanSetterProperty(direct ? spin(BooleanSetter.class, "set", t, h) : booleanSetter(h.asType(t)));
+        }
+        MethodType t = MethodType.methodType(void.class, Object.class, Object.class);
+        return new ObjectSetterProperty(direct ? spin(ObjectSetter.class, "set", t, h) : objectSetter(h.asType(t)), type);
+    }
+
+    // lambda classes are linked against our class loader, so the target class should be public and visible from here
+    private static boolean canLink(Class<?> clazz, int modifiers) {
+        if (!Modifier.isPublic(modifiers))
+            return false;
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers()))
+                return false;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, CodecGenerator.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <F> F spin(Class<F> iface, String name, MethodType erased, MethodHandle impl) throws Throwable {
+        MethodType instantiated = impl.type();
+        // widen primitive getters and erase generic return types to the sam type
+        if (erased.returnType() != void.class && erased.returnType().isPrimitive())
+            instantiated = instantiated.changeReturnType(erased.returnType());
+        if (instantiated.returnType() != void.class && !instantiated.returnType().isPrimitive())
+            instantiated = instantiated.changeReturnType(Object.class);
+        return (F) LambdaMetafactory.metafactory(
+                LOOKUP, name, MethodType.methodType(iface), erased, impl, instantiated
+        ).getTarget().invoke();
+    }
+
+    @SneakyThrows
+    private static RuntimeException rethrow(Throwable e) {
+        throw e;
+    }
+
+    // method handle fallbacks, typed exactly so invokeExact does not box
+    private static ObjectGetter objectGetter(MethodHandle h) {
+        return o -> {
+            try {
+                return (Object) h.invokeExact(o);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static LongGetter longGetter(MethodHandle h) {
+        return o -> {
+            try {
+                return (long) h.invokeExact(o);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static BooleanGetter booleanGetter(MethodHandle h) {
+        return o -> {
+            try {
+                return (boolean) h.invokeExact(o);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static ObjectSetter objectSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static LongSetter longSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static IntSetter intSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static ShortSetter shortSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static ByteSetter byteSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    private static BooleanSetter booleanSetter(MethodHandle h) {
+        return (o, v) -> {
+            try {
+                h.invokeExact(o, v);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    // property of a writer, read from object and written as rlp element
+    interface PropertyWriter {
+        int write(AbstractBuffer buf, Object o);
+
+        // boxed value, for the caller writes it
+        Object get(Object o);
+    }
+
+    // property of a decoder, decoded from rlp element and set into object
+    interface PropertyDecoder {
+        void read(byte[] bin, long streamId, Object dst);
+
+        // set value decoded by the caller, primitives are unboxed
+        void set(Object dst, Object value);
+
+        // primitives set by the caller without boxing, see ListDecoder.setLong
+        default void setLong(Object dst, long value) {
+            set(dst, value);
+        }
+
+        default void setBoolean(Object dst, boolean value) {
+            set(dst, value);
+        }
+    }
+
+    static final class ObjectGetterProperty implements PropertyWriter {
+        private final ObjectGetter getter;
+        private final Class<?> type;
+
+        ObjectGetterProperty(ObjectGetter getter, Class<?> type) {
+            this.getter = getter;
+            this.type = type;
+        }
+
+        @Override
+        public int write(AbstractBuffer buf, Object o) {
+            Object v = getter.get(o);
+            if (type == byte[].class)
+                return RlpWriter.writeBytes(buf, (byte[]) v);
+            return RlpWriter.writeObject(buf, v);
+        }
+
+        @Override
+        public Object get(Object o) {
+            return getter.get(o);
+        }
+    }
+
+    static final class LongGetterProperty implements PropertyWriter {
+        private final LongGetter getter;
+        private final long mask;
+
+        LongGetterProperty(LongGetter getter, long mask) {
+            this.getter = getter;
+            this.mask = mask;
+        }
+
+        @Override
+        public int write(AbstractBuffer buf, Object o) {
+            return RlpWriter.writeLong(buf, getter.get(o) & mask);
+        }
+
+        @Override
+        public Object get(Object o) {
+            return getter.get(o) & mask;
+        }
+    }
+
+    static final class BooleanGetterProperty implements PropertyWriter {
+        private final BooleanGetter getter;
+
+        BooleanGetterProperty(BooleanGetter getter) {
+            this.getter = getter;
+        }
+
+        @Override
+        public int write(AbstractBuffer buf, Object o) {
+            return getter.get(o) ? RlpWriter.writeOne(buf) : RlpWriter.writeNull(buf);
+        }
+
+        @Override
+        public Object get(Object o) {
+            return getter.get(o);
+        }
+    }
+
+    static final class ObjectSetterProperty implements PropertyDecoder {
+        private final ObjectSetter setter;
+        private final Class<?> type;
+
+        ObjectSetterProperty(ObjectSetter setter, Class<?> type) {
+            this.setter = setter;
+            this.type = type;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, RlpStream.decode(bin, streamId, type));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, value);
+        }
+    }
+
+    static final class LongSetterProperty implements PropertyDecoder {
+        private final LongSetter setter;
+
+        LongSetterProperty(LongSetter setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, StreamId.asLong(bin, streamId));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, (Long) value);
+        }
+
+        @Override
+        public void setLong(Object dst, long value) {
+            setter.set(dst, value);
+        }
+    }
+
+    static final class IntSetterProperty implements PropertyDecoder {
+        private final IntSetter setter;
+
+        IntSetterProperty(IntSetter setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, StreamId.asInt(bin, streamId));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, (Integer) value);
+        }
+
+        @Override
+        public void setLong(Object dst, long value) {
+            setter.set(dst, (int) value);
+        }
+    }
+
+    static final class ShortSetterProperty implements PropertyDecoder {
+        private final ShortSetter setter;
+
+        ShortSetterProperty(ShortSetter setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, StreamId.asShort(bin, streamId));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, (Short) value);
+        }
+
+        @Override
+        public void setLong(Object dst, long value) {
+            setter.set(dst, (short) value);
+        }
+    }
+
+    static final class ByteSetterProperty implements PropertyDecoder {
+        private final ByteSetter setter;
+
+        ByteSetterProperty(ByteSetter setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, StreamId.asByte(bin, streamId));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, (Byte) value);
+        }
+
+        @Override
+        public void setLong(Object dst, long value) {
+            setter.set(dst, (byte) value);
+        }
+    }
+
+    static final class BooleanSetterProperty implements PropertyDecoder {
+        private final BooleanSetter setter;
+
+        BooleanSetterProperty(BooleanSetter setter) {
+            this.setter = setter;
+        }
+
+        @Override
+        public void read(byte[] bin, long streamId, Object dst) {
+            setter.set(dst, StreamId.asBoolean(bin, streamId));
+        }
+
+        @Override
+        public void set(Object dst, Object value) {
+            setter.set(dst, (Boolean) value);
+        }
+
+        @Override
+        public void setBoolean(Object dst, boolean value) {
+            setter.set(dst, value);
+        }
+    }
+
+    // constructor arguments are kept in a long[] for primitives and an Object[] for references,
+    // and passed by invokeExact of the arity of the constructor, primitives are never boxed when decoded from rlp
+    static final class FixedArityDecoder<T> implements ListDecoder<T> {
+        static final int MAX_ARITY = 8;
+
+        private static final byte OBJECT = 0;
+        private static final byte LONG = 1;
+        private static final byte INT = 2;
+        private static final byte SHORT = 3;
+        private static final byte BYTE = 4;
+        private static final byte BOOLEAN = 5;
+
+        static final class Args {
+            final long[] longs;
+            final Object[] refs;
+
+            Args(int n) {
+                this.longs = new long[n];
+                this.refs = new Object[n];
+            }
+        }
+
+        private final Class<?> type;
+        // (long, Object) pair per argument, see fixedArity
+        private final MethodHandle constructor;
+        private final Class<?>[] parameterTypes;
+        private final byte[] kinds;
+
+        FixedArityDecoder(Class<?> type, MethodHandle constructor, Class<?>[] parameterTypes) {
+            this.type = type;
+            this.constructor = constructor;
+            this.parameterTypes = parameterTypes;
+            this.kinds = new byte[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++)
+                kinds[i] = kindOf(parameterTypes[i]);
+        }
+
+        // primitives other than long, int, short, byte and boolean are not decodable and left to SpreadDecoder
+        static boolean supports(Class<?>[] types) {
+            for (Class<?> t : types) {
+                if (t.isPrimitive() && kindOf(t) == OBJECT)
+                    return false;
+            }
+            return true;
+        }
+
+        private static byte kindOf(Class<?> t) {
+            if (t == long.class)
+                return LONG;
+            if (t == int.class)
+                return INT;
+            if (t == short.class)
+                return SHORT;
+            if (t == byte.class)
+                return BYTE;
+            if (t == boolean.class)
+                return BOOLEAN;
+            return OBJECT;
+        }
+
+        @Override
+        public T decode(byte[] bin, long streamId) {
+            if (StreamId.isNull(streamId))
+                return null;
+            if (!StreamId.isList(streamId))
+                throw new RlpDecodeException("rlp list expected when decode as class " + type);
+            Args args = new Args(kinds.length);
+            long j = streamId;
+            int c = 0;
+            while (true) {
+                j = RlpStream.iterateList(bin, streamId, j);
+                if (StreamId.isEOF(j))
+                    break;
+                read(bin, j, args, c);
+                c++;
+            }
+            return finish(args, c);
+        }
+
+        private void read(byte[] bin, long streamId, Args args, int i) {
+            switch (i < kinds.length ? kinds[i] : OBJECT) {
+                case LONG:
+                    args.longs[i] = StreamId.asLong(bin, streamId);
+                    return;
+                case INT:
+                    args.longs[i] = StreamId.asInt(bin, streamId);
+                    return;
+                case SHORT:
+                    args.longs[i] = StreamId.asShort(bin, streamId);
+                    return;
+                case BYTE:
+                    args.longs[i] = StreamId.asByte(bin, streamId);
+                    return;
+                case BOOLEAN:
+                    args.longs[i] = StreamId.asBoolean(bin, streamId) ? 1 : 0;
+                    return;
+                default:
+                    args.refs[i] = RlpStream.decode(bin, streamId, typeAt(i));
+            }
+        }
+
+        @Override
+        public Object begin() {
+            return new Args(kinds.length);
+        }
+
+        @Override
+        public Class<?> typeAt(int i) {
+            if (i >= parameterTypes.length)
+                throw new RlpDecodeException("constructor arguments length not match to rlp list size");
+            return parameterTypes[i];
+        }
+
+        @Override
+        public void set(Object state, int i, Object value) {
+            Args args = (Args) state;
+            switch (kinds[i]) {
+                case OBJECT:
+                    args.refs[i] = value;
+                    return;
+                case BOOLEAN:
+                    args.longs[i] = (Boolean) value ? 1 : 0;
+                    return;
+                default:
+                    args.longs[i] = ((Number) value).longValue();
+            }
+        }
+
+        @Override
+        public void setLong(Object state, int i, long value) {
+            ((Args) state).longs[i] = value;
+        }
+
+        @Override
+        public void setBoolean(Object state, int i, boolean value) {
+            ((Args) state).longs[i] = value ? 1 : 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T finish(Object state, int c) {
+            if (c != kinds.length)
+                throw new RlpDecodeException("constructor arguments length not match to rlp list size");
+            long[] l = ((Args) state).longs;
+            Object[] r = ((Args) state).refs;
+            try {
+                switch (c) {
+                    case 0:
+                        return (T) (Object) constructor.invokeExact();
+                    case 1:
+                        return (T) (Object) constructor.invokeExact(l[0], r[0]);
+                    case 2:
+                        return (T) (Object) constructor.invokeExact(l[0], r[0], l[1], r[1]);
+                    case 3:
+                        return (T) (Object) constructor.invokeExact(l[0], r[0], l[1], r[1], l[2], r[2]);
+                    case 4:
+                        return (T) (Object) constructor.invokeExact(l[0], r[0], l[1], r[1], l[2], r[2], l[3], r[3]);
+                    case 5:
+                        return (T) (Object) constructor.invokeExact(l[0], r[0], l[1], r[1], l[2], r[2], l[3], r[3], l[4], r[4]);
+                    case 6:
+                        return (T) (Object) constructor.invokeExact(
+                                l[0], r[0], l[1], r[1], l[2], r[2], l[3], r[3], l[4], r[4], l[5], r[5]);
+                    case 7:
+                        return (T) (Object) constructor.invokeExact(
+                                l[0], r[0], l[1], r[1], l[2], r[2], l[3], r[3], l[4], r[4], l[5], r[5], l[6], r[6]);
+                    default:
+                        return (T) (Object) constructor.invokeExact(
+                                l[0], r[0], l[1], r[1], l[2], r[2], l[3], r[3], l[4], r[4], l[5], r[5], l[6], r[6], l[7], r[7]);
+                }
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    // fallback for constructors of more than FixedArityDecoder.MAX_ARITY parameters,
+    // arguments are collected into Object[] and spread by the method handle, primitives are boxed once here
+    static final class SpreadDecoder<T> implements ListDecoder<T> {
+        private final Class<?> type;
+        private final MethodHandle constructor;
+        private final Class<?>[] parameterTypes;
+
+        SpreadDecoder(Class<?> type, MethodHandle constructor, Class<?>[] parameterTypes) {
+            this.type = type;
+            this.constructor = constructor;
+            this.parameterTypes = parameterTypes;
+        }
+
+        @Override
+        public T decode(byte[] bin, long streamId) {
+            if (StreamId.isNull(streamId))
+                return null;
+            if (!StreamId.isList(streamId))
+                throw new RlpDecodeException("rlp list expected when decode as class " + type);
+            Object[] args = new Object[parameterTypes.length];
+            long j = streamId;
+            int c = 0;
+            while (true) {
+                j = RlpStream.iterateList(bin, streamId, j);
+                if (StreamId.isEOF(j))
+                    break;
+                args[c] = RlpStream.decode(bin, j, typeAt(c));
+                c++;
+            }
+            return finish(args, c);
+        }
+
+        @Override
+        public Object begin() {
+            return new Object[parameterTypes.length];
+        }
+
+        @Override
+        public Class<?> typeAt(int i) {
+            if (i >= parameterTypes.length)
+                throw new RlpDecodeException("constructor arguments length not match to rlp list size");
+            return parameterTypes[i];
+        }
+
+        @Override
+        public void set(Object state, int i, Object value) {
+            ((Object[]) state)[i] = value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T finish(Object state, int c) {
+            if (c != parameterTypes.length)
+                throw new RlpDecodeException("constructor arguments length not match to rlp list size");
+            try {
+                return (T) constructor.invokeExact((Object[]) state);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    static final class PropsDecoder<T> implements ListDecoder<T> {
+        private final Class<?> type;
+        private final Instantiator instantiator;
+        private final PropertyDecoder[] props;
+        private final Class<?>[] types;
+        private final Field[] fields;
+
+        PropsDecoder(Class<?> type, Instantiator instantiator, PropertyDecoder[] props, Class<?>[] types, Field[] fields) {
+            this.type = type;
+            this.instantiator = instantiator;
+            this.props = props;
+            this.types = types;
+            this.fields = fields;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T decode(byte[] bin, long streamId) {
+            if (StreamId.isNull(streamId))
+                return null;
+            if (!StreamId.isList(streamId))
+                throw new RlpDecodeException("rlp list expected when decode as class " + type);
+
+            T dst = (T) instantiator.create();
+            long j = streamId;
+            int c = 0;
+            while (true) {
+                j = RlpStream.iterateList(bin, streamId, j);
+                if (StreamId.isEOF(j))
+                    break;
+                if (c >= props.length)
+                    throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
+                props[c++].read(bin, j, dst);
+            }
+            return finish(dst, c);
+        }
+
+        @Override
+        public Object begin() {
+            return instantiator.create();
+        }
+
+        @Override
+        public Class<?> typeAt(int i) {
+            if (i >= types.length)
+                throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
+            return types[i];
+        }
+
+        @Override
+        public void set(Object state, int i, Object value) {
+            props[i].set(state, value);
+        }
+
+        @Override
+        public void setLong(Object state, int i, long value) {
+            props[i].setLong(state, value);
+        }
+
+        @Override
+        public void setBoolean(Object state, int i, boolean value) {
+            props[i].setBoolean(state, value);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T finish(Object state, int c) {
+            if (c != props.length)
+                throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
+            return (T) state;
+        }
+    }
+
+    static final class PropsWriter implements ObjectWriter, ListWriter {
+        private final PropertyWriter[] props;
+
+        PropsWriter(PropertyWriter[] props) {
+            this.props = props;
+        }
+
+        @Override
+        public int writeToBuf(AbstractBuffer buf, Object o) {
+            int size = 0;
+            buf.allocateListPrefix();
+            for (PropertyWriter p : props) {
+                size += p.write(buf, o);
+            }
+            return size + buf.writeListPrefix(size);
+        }
+
+        @Override
+        public int size() {
+            return props.length;
+        }
+
+        @Override
+        public Object get(Object o, int i) {
+            return props[i].get(o);
+        }
+    }
+}
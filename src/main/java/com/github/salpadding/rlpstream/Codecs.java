@@ -0,0 +1,159 @@
+package com.github.salpadding.rlpstream;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+// registry of decoders and writers
+// codecs are attached to classes by ClassValue, so classes are not pinned by the registry and could be unloaded with their class loader,
+// lookup of a resolved class costs one volatile read of the registry, codecs are read from plain fields of the entry
+// codecs listed in META-INF/services/com.github.salpadding.rlpstream.RlpCodec are registered when the registry is created,
+// providers failed to load are skipped and their classes fall back to reflective codecs
+final class Codecs {
+    private Codecs() {
+    }
+
+    // codec published by a final field, so a plain read of the holder never sees a partially built codec
+    static final class Codec<C> {
+        final C codec;
+
+        Codec(C codec) {
+            this.codec = codec;
+        }
+    }
+
+    static final class Entry {
+        // written with the lock of the entry held, read without synchronization
+        // a racing lookup may miss a codec just resolved and resolve it again, putIfAbsent then returns the winner
+        Codec<RlpDecoder<?>> decoder;
+        Codec<ObjectWriter> writer;
+    }
+
+    // replaced as a whole by reset, volatile so lookups never keep a stale registry
+    private static volatile ClassValue<Entry> entries = newEntries();
+
+    @SuppressWarnings("unchecked")
+    static <T> RlpDecoder<T> decoder(Class<T> clazz) {
+        Codec<RlpDecoder<?>> c = entries.get(clazz).decoder;
+        return c == null ? null : (RlpDecoder<T>) c.codec;
+    }
+
+    static ObjectWriter writer(Class<?> clazz) {
+        Codec<ObjectWriter> c = entries.get(clazz).writer;
+        return c == null ? null : c.codec;
+    }
+
+    // explicit registration always overrides
+    // lookups in other threads see the registration once they synchronize with the registering thread
+    static <T> void setDecoder(Class<T> clazz, RlpDecoder<T> decoder) {
+        Entry e = entries.get(clazz);
+        synchronized (e) {
+            e.decoder = new Codec<>(decoder);
+        }
+    }
+
+    static <T> void setWriter(Class<T> clazz, RlpEncoder<T> encoder) {
+        Entry e = entries.get(clazz);
+        synchronized (e) {
+            e.writer = new Codec<>(writer(encoder));
+        }
+    }
+
+    // resolved codec is kept only if no codec was registered or resolved concurrently, return the winner
+    @SuppressWarnings("unchecked")
+    static <T> RlpDecoder<T> putDecoderIfAbsent(Class<T> clazz, RlpDecoder<T> decoder) {
+        Entry e = entries.get(clazz);
+        synchronized (e) {
+            if (e.decoder == null)
+                e.decoder = new Codec<>(decoder);
+            return (RlpDecoder<T>) e.decoder.codec;
+        }
+    }
+
+    static ObjectWriter putWriterIfAbsent(Class<?> clazz, ObjectWriter writer) {
+        Entry e = entries.get(clazz);
+        synchronized (e) {
+            if (e.writer == null)
+                e.writer = new Codec<>(writer);
+            return e.writer.codec;
+        }
+    }
+
+    // drop all resolved and registered codecs, for tests and benchmarks
+    // concurrent lookups see either the old or the new registry, registrations racing with reset may be lost
+    static void reset() {
+        entries = newEntries();
+    }
+
+    private static ClassValue<Entry> newEntries() {
+        ClassValue<Entry> r = new ClassValue<Entry>() {
+            @Override
+            protected Entry computeValue(Class<?> type) {
+                return new Entry();
+            }
+        };
+        Iterator<RlpCodec<?>> it = load().iterator();
+        while (true) {
+            RlpCodec<?> codec;
+            Class<?> type;
+            try {
+                if (!it.hasNext())
+                    break;
+            } catch (ServiceConfigurationError ignored) {
+                // unreadable provider configuration, the iterator may not advance past it
+                break;
+            }
+            try {
+                codec = it.next();
+                type = codec.type();
+            } catch (ServiceConfigurationError | RuntimeException | LinkageError ignored) {
+                // provider not found, not instantiable or not a codec, a broken provider must not fail the registry
+                continue;
+            }
+            Entry e = r.get(type);
+            e.decoder = new Codec<>(codec);
+            e.writer = new Codec<>(writer(codec));
+        }
+        return r;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Iterable<RlpCodec<?>> load() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return (Iterable) ServiceLoader.load(RlpCodec.class, loader == null ? RlpCodec.class.getClassLoader() : loader);
+    }
+
+    // encoders implementing ListWriter, e.g. generated codecs, keep it so IterativeCodec expands them as frames
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectWriter writer(RlpEncoder<T> encoder) {
+        if (encoder instanceof ListWriter)
+            return new ListEncoderWriter<>(encoder, (ListWriter) encoder);
+        return (buf, o) -> encoder.encode(buf, (T) o);
+    }
+
+    private static final class ListEncoderWriter<T> implements ObjectWriter, ListWriter {
+        private final RlpEncoder<T> encoder;
+        private final ListWriter list;
+
+        ListEncoderWriter(RlpEncoder<T> encoder, ListWriter list) {
+            this.encoder = encoder;
+            this.list = list;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public int writeToBuf(AbstractBuffer buf, Object o) {
+            return encoder.encode(buf, (T) o);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public Object get(Object o, int i) {
+            return list.get(o, i);
+        }
+    }
+}
@@ -4,10 +4,9 @@ import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
 import lombok.SneakyThrows;
 
 import java.lang.reflect.Constructor;
-import java.util.function.BiFunction;
 
 
-final class ConstructorDecoder<T> implements BiFunction<byte[], Long, T> {
+final class ConstructorDecoder<T> implements ListDecoder<T> {
     private final Constructor<T> constructor;
     private final Class<?>[] parameterTypes;
 
@@ -17,12 +16,10 @@ final class ConstructorDecoder<T> implements BiFunction<byte[], Long, T> {
     }
 
     @Override
-    @SneakyThrows
-    public T apply(byte[] bin, Long streamId) {
-        if (StreamId.isNull(streamId))
+    public T decode(byte[] bin, long streamId) {
+        Object[] args = newArgs(streamId);
+        if (args == null)
             return null;
-        Object[] args = new Object[constructor.getParameterCount()];
-        long[] children = new long[args.length];
 
         long j = streamId;
         int c = 0;
@@ -30,16 +27,49 @@ final class ConstructorDecoder<T> implements BiFunction<byte[], Long, T> {
             j = RlpStream.iterateList(bin, streamId, j);
             if (StreamId.isEOF(j))
                 break;
-            if (c >= children.length)
-                throw new RlpDecodeException("constructor arguments length not match to rlp list size");
-            children[c++] = j;
+            args[c] = RlpStream.decode(bin, j, typeAt(c));
+            c++;
         }
-        if (c != args.length)
+        return create(args, c);
+    }
+
+    // arguments to be decoded, null if streamId is null
+    Object[] newArgs(long streamId) {
+        if (StreamId.isNull(streamId))
+            return null;
+        if (!StreamId.isList(streamId))
+            throw new RlpDecodeException("rlp list expected when decode as class " + constructor.getDeclaringClass());
+        return new Object[parameterTypes.length];
+    }
+
+    @Override
+    public Object begin() {
+        return new Object[parameterTypes.length];
+    }
+
+    // type of c-th argument, throws if the list has more children than arguments
+    @Override
+    public Class<?> typeAt(int c) {
+        if (c >= parameterTypes.length)
             throw new RlpDecodeException("constructor arguments length not match to rlp list size");
+        return parameterTypes[c];
+    }
 
-        for (int i = 0; i < args.length; i++) {
-            args[i] = RlpStream.decode(bin, children[i], parameterTypes[i]);
-        }
+    @Override
+    public void set(Object state, int i, Object value) {
+        ((Object[]) state)[i] = value;
+    }
+
+    @Override
+    public T finish(Object state, int c) {
+        return create((Object[]) state, c);
+    }
+
+    // c is the number of arguments decoded
+    @SneakyThrows
+    T create(Object[] args, int c) {
+        if (c != args.length)
+            throw new RlpDecodeException("constructor arguments length not match to rlp list size");
         return constructor.newInstance(args);
     }
 }
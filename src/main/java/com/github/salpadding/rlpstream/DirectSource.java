@@ -0,0 +1,53 @@
+package com.github.salpadding.rlpstream;
+
+import sun.misc.Unsafe;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+// single direct byte buffer, read from its native address without copy into heap
+final class DirectSource implements RlpSource {
+    private static final Unsafe unsafe = UnsafeBuf.reflectGetUnsafe();
+    private static final int ARRAY_OFFSET = unsafe.arrayBaseOffset(byte[].class);
+    private static final long ADDRESS_OFFSET = addressOffset();
+
+    private static long addressOffset() {
+        try {
+            return unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("access address of direct buffer failed");
+        }
+    }
+
+    // referenced so memory is not freed while the source is reachable
+    private final ByteBuffer buf;
+    private final long address;
+    private final int size;
+
+    DirectSource(ByteBuffer buf) {
+        this.buf = buf.slice();
+        this.address = unsafe.getLong(this.buf, ADDRESS_OFFSET);
+        this.size = this.buf.capacity();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public byte get(long index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds " + size);
+        return unsafe.getByte(address + index);
+    }
+
+    @Override
+    public void get(long index, byte[] dst, int off, int len) {
+        if (index < 0 || len < 0 || index > size - len)
+            throw new IndexOutOfBoundsException("index " + index + " length " + len + " out of bounds " + size);
+        if (off < 0 || off > dst.length - len)
+            throw new IndexOutOfBoundsException("offset " + off + " length " + len + " out of bounds " + dst.length);
+        unsafe.copyMemory(null, address + index, dst, ARRAY_OFFSET + off, len);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpEncodeException;
+
+import static com.github.salpadding.rlpstream.RlpWriter.prefixSize;
+import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
+
+// second pass of two pass encoding, writes into bin[offset, offset + cap) where cap is the exact encoded size
+// list prefixes are written in place from sizes recorded by SizeBuf, so list bodies are never moved
+final class ExactBuf extends AbstractBuffer {
+    private final byte[] bin;
+    private final int offset;
+    private final int cap;
+    private final ListSizes sizes;
+
+    private int size;
+
+    ExactBuf(int cap, ListSizes sizes) {
+        this(new byte[cap], 0, cap, sizes);
+    }
+
+    ExactBuf(byte[] bin, int offset, int cap, ListSizes sizes) {
+        this.bin = bin;
+        this.offset = offset;
+        this.cap = cap;
+        this.sizes = sizes;
+    }
+
+    // writer wrote more than the first pass, never write out of [offset, offset + cap)
+    static RlpEncodeException sizeMismatch() {
+        return new RlpEncodeException("encoded size mismatch, writer should be deterministic");
+    }
+
+    @Override
+    void write(byte b) {
+        if (size == cap)
+            throw sizeMismatch();
+        bin[offset + size++] = b;
+    }
+
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        ensureCapacity(size);
+        System.arraycopy(bytes, offset, bin, this.offset + this.size, size);
+        this.size += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++)
+            bin[offset + size++] = (byte) (value >>> (8 * (width - i - 1)));
+    }
+
+    // buffer is allocated with exact size
+    @Override
+    void ensureCapacity(int n) {
+        if (n > cap - size)
+            throw sizeMismatch();
+    }
+
+    @Override
+    public void allocateListPrefix() {
+        writePrefix(this, sizes.open(), false, true);
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        sizes.close(size);
+        return prefixSize(size);
+    }
+
+    // fails if the writer doesn't produce the same output as the first pass
+    void checkFull() {
+        if (size != cap)
+            throw sizeMismatch();
+    }
+
+    byte[] toByteArray() {
+        checkFull();
+        if (offset == 0 && cap == bin.length)
+            return bin;
+        byte[] r = new byte[cap];
+        System.arraycopy(bin, offset, r, 0, cap);
+        return r;
+    }
+}
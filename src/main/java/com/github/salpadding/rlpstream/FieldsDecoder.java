@@ -7,22 +7,44 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.function.BiFunction;
 
 
 @RequiredArgsConstructor
-final class FieldsDecoder<T> implements BiFunction<byte[], Long, T> {
+@SuppressWarnings("unchecked")
+final class FieldsDecoder<T> implements ListDecoder<T> {
     private final Constructor<T> constructor;
     private final Method[] setters;
     private final Class<?>[] setterTypes;
     private final Field[] fields;
 
     @Override
-    public T apply(byte[] bin, Long streamId) {
+    public T decode(byte[] bin, long streamId) {
+        T dst = create(bin, streamId);
+        if (dst == null)
+            return null;
+        long j = streamId;
+        for (int i = 0; i < setters.length; i++) {
+            j = RlpStream.iterateList(bin, streamId, j);
+            set(dst, i, RlpStream.decode(bin, j, typeAt(i)));
+        }
+        return dst;
+    }
+
+    @Override
+    public Class<?> typeAt(int i) {
+        if (i >= setters.length)
+            throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
+        return setters[i] != null ? setterTypes[i] : fields[i].getType();
+    }
+
+    // check size of list and create instance without properties set, null if streamId is null
+    T create(byte[] bin, long streamId) {
         if (StreamId.isNull(streamId))
             return null;
+        if (!StreamId.isList(streamId))
+            throw new RlpDecodeException("rlp list expected when decode as class " + constructor.getDeclaringClass());
 
-        long[] children = new long[setters.length];
+        // count children before create instance, children are iterated again when set
         long j = streamId;
         int c = 0;
         while (true) {
@@ -30,36 +52,55 @@ final class FieldsDecoder<T> implements BiFunction<byte[], Long, T> {
                     iterateList(bin, streamId, j);
             if (StreamId.isEOF(j))
                 break;
-            if (c >= children.length) {
+            if (c >= setters.length) {
                 throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
             }
-            children[c++] = j;
+            c++;
         }
+        checkSize(c);
+        return newInstance();
+    }
+
+    @Override
+    public Object begin() {
+        return newInstance();
+    }
+
+    @Override
+    public T finish(Object state, int c) {
+        checkSize(c);
+        return (T) state;
+    }
+
+    // throws if c children found while number of properties is different
+    void checkSize(int c) {
         if (c != setters.length)
             throw new RlpDecodeException("arguments " + Arrays.toString(fields) + " length not match to rlp list size");
+    }
 
-        T dst;
+    T newInstance() {
         try {
-            dst = constructor.newInstance();
+            return constructor.newInstance();
         } catch (Exception e) {
             throw new RlpDecodeException("unexpected error when create instance by constructor " + constructor);
         }
-        for (int i = 0; i < setters.length; i++) {
-            Method setter = setters[i];
-            if (setter != null) {
-                try {
-                    setter.invoke(dst, RlpStream.decode(bin, children[i], setterTypes[i]));
-                } catch (Exception e) {
-                    throw new RlpDecodeException("unexpected error when invoke setter " + setter);
-                }
-            } else {
-                try {
-                    fields[i].set(dst, RlpStream.decode(bin, children[i], fields[i].getType()));
-                } catch (Exception e) {
-                    throw new RlpDecodeException("unexpected error when set field " + fields[i]);
-                }
+    }
+
+    @Override
+    public void set(Object dst, int i, Object value) {
+        Method setter = setters[i];
+        if (setter != null) {
+            try {
+                setter.invoke(dst, value);
+            } catch (Exception e) {
+                throw new RlpDecodeException("unexpected error when invoke setter " + setter);
+            }
+        } else {
+            try {
+                fields[i].set(dst, value);
+            } catch (Exception e) {
+                throw new RlpDecodeException("unexpected error when set field " + fields[i]);
             }
         }
-        return dst;
     }
 }
@@ -9,25 +9,31 @@ import java.lang.reflect.Method;
 import static com.github.salpadding.rlpstream.RlpWriter.writeObject;
 
 @RequiredArgsConstructor
-final class FieldsWriter implements ObjectWriter {
+final class FieldsWriter implements ObjectWriter, ListWriter {
     private final Method[] getters;
     private final Field[] fields;
 
-    @SneakyThrows
     public int writeToBuf(AbstractBuffer buf, Object o) {
         int size = 0;
         buf.allocateListPrefix();
 
         for (int i = 0; i < fields.length; i++) {
-            Method getter = getters[i];
-            Object oi;
-            if (getter != null) {
-                oi = getter.invoke(o);
-            } else {
-                oi = fields[i].get(o);
-            }
-            size += writeObject(buf, oi);
+            size += writeObject(buf, get(o, i));
         }
         return size + buf.writeListPrefix(size);
     }
+
+    @Override
+    public int size() {
+        return fields.length;
+    }
+
+    @Override
+    @SneakyThrows
+    public Object get(Object o, int i) {
+        Method getter = getters[i];
+        if (getter != null)
+            return getter.invoke(o);
+        return fields[i].get(o);
+    }
 }
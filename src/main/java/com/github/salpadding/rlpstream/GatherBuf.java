@@ -0,0 +1,97 @@
+package com.github.salpadding.rlpstream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.salpadding.rlpstream.RlpWriter.prefixSize;
+import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
+
+// second pass of two pass encoding into a sequence of byte buffers
+// prefixes and small items are packed into shared chunks, byte arrays not smaller than threshold are wrapped without copy
+final class GatherBuf extends AbstractBuffer {
+    private final int threshold;
+    private final int chunkSize;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+
+    private byte[] chunk;
+    private int pos;
+    // start of current segment in chunk
+    private int mark;
+    private int size;
+
+    private final ListSizes sizes;
+
+    GatherBuf(int threshold, int chunkSize, ListSizes sizes) {
+        this.threshold = threshold;
+        this.chunkSize = chunkSize;
+        this.chunk = new byte[chunkSize];
+        this.sizes = sizes;
+    }
+
+    private void cut() {
+        if (pos > mark)
+            buffers.add(ByteBuffer.wrap(chunk, mark, pos - mark));
+        mark = pos;
+    }
+
+    @Override
+    void write(byte b) {
+        ensureCapacity(1);
+        chunk[pos++] = b;
+        size++;
+    }
+
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        if (size >= threshold) {
+            cut();
+            buffers.add(ByteBuffer.wrap(bytes, offset, size));
+            this.size += size;
+            return;
+        }
+        ensureCapacity(size);
+        System.arraycopy(bytes, offset, chunk, pos, size);
+        pos += size;
+        this.size += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++)
+            chunk[pos++] = (byte) (value >>> (8 * (width - i - 1)));
+        size += width;
+    }
+
+    // items copied into chunks are smaller than threshold, so n never exceeds max(chunkSize, threshold)
+    @Override
+    void ensureCapacity(int n) {
+        if (n <= chunk.length - pos)
+            return;
+        cut();
+        chunk = new byte[Math.max(chunkSize, n)];
+        pos = 0;
+        mark = 0;
+    }
+
+    ByteBuffer[] toBuffers() {
+        cut();
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    @Override
+    public void allocateListPrefix() {
+        writePrefix(this, sizes.open(), false, true);
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        sizes.close(size);
+        return prefixSize(size);
+    }
+}
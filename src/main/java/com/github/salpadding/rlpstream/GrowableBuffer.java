@@ -0,0 +1,57 @@
+package com.github.salpadding.rlpstream;
+
+import java.io.DataOutput;
+
+import static com.github.salpadding.rlpstream.RlpWriter.MAX_PREFIX_SIZE;
+import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
+
+// single pass buffer holding the whole encoding, grown when full
+// MAX_PREFIX_SIZE bytes are reserved for every list, the body is moved left once the real prefix is written
+abstract class GrowableBuffer extends AbstractBuffer {
+    abstract int getSize();
+
+    abstract void setSize(int size);
+
+    // pre allocate list prefix
+    @Override
+    public void allocateListPrefix() {
+        ensureCapacity(MAX_PREFIX_SIZE);
+        setSize(getSize() + MAX_PREFIX_SIZE);
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        int prevSize = this.getSize();
+        setSize(prevSize - size - MAX_PREFIX_SIZE);
+        int prefixSize = writePrefix(this, size, false, true);
+        int shifts = MAX_PREFIX_SIZE - prefixSize;
+        setSize(prevSize);
+        leftShift(prevSize - size, size, shifts);
+        setSize(prevSize - shifts);
+        return prefixSize;
+    }
+
+    void leftShift(int offset, int size, int shifts) {
+        if (shifts == 0)
+            return;
+        if (offset < 0)
+            throw new UnsupportedOperationException("offset should be positive");
+        if (offset >= getSize())
+            throw new UnsupportedOperationException("memory access overflow");
+        if (size < 0)
+            throw new UnsupportedOperationException("size should be positive");
+        if (size > getSize() - offset)
+            throw new UnsupportedOperationException("size too large");
+        if (shifts < 0)
+            throw new UnsupportedOperationException("shift should be non-negative");
+        if (shifts > offset)
+            throw new UnsupportedOperationException("shifts too large");
+        primitiveLeftShift(offset, size, shifts);
+    }
+
+    abstract void primitiveLeftShift(int offset, int size, int shifts);
+
+    abstract byte[] toByteArray();
+
+    abstract void intoStream(DataOutput output);
+}
@@ -0,0 +1,378 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+// encode and decode nested lists by an explicit frame stack instead of recursion, enabled by Rlp.useIterativeTraversal
+// object arrays, collections and classes of ListWriter or ListDecoder(@RlpProps, @RlpCreator constructors) are expanded as frames,
+// reflective, generated or loaded by ServiceLoader, codecs implementing neither are leaves
+// primitive children of ListDecoder are set by setLong and setBoolean without boxing
+// other values are leaves handled by RlpWriter.writeValue and RlpStream.decodeValue, or SourceDecoder for RlpSource
+// frames are kept by thread and reused, custom codecs calling back into encode or decode push frames above frames of the caller
+final class IterativeCodec {
+    private IterativeCodec() {
+    }
+
+    private static final int INITIAL_FRAMES = 32;
+
+    // returned by push when a frame is pushed instead of a value decoded
+    private static final Object PENDING = new Object();
+
+    static final class Frames {
+        // encode: array, collection or object being written, decode: array, instance or constructor arguments being filled
+        Object[] values = new Object[INITIAL_FRAMES];
+        // encode: null for array, Iterator or ListWriter, decode: element type or ListDecoder
+        Object[] cursors = new Object[INITIAL_FRAMES];
+        // decode: stream id of list and the last child visited
+        long[] lists = new long[INITIAL_FRAMES];
+        long[] prevs = new long[INITIAL_FRAMES];
+        // index of next child
+        int[] indexes = new int[INITIAL_FRAMES];
+        // encode: size of children written
+        int[] sizes = new int[INITIAL_FRAMES];
+        int top;
+
+        int push(Object value, Object cursor) {
+            int t = top;
+            if (t == values.length) {
+                int cap = t * 2;
+                values = Arrays.copyOf(values, cap);
+                cursors = Arrays.copyOf(cursors, cap);
+                lists = Arrays.copyOf(lists, cap);
+                prevs = Arrays.copyOf(prevs, cap);
+                indexes = Arrays.copyOf(indexes, cap);
+                sizes = Arrays.copyOf(sizes, cap);
+            }
+            values[t] = value;
+            cursors[t] = cursor;
+            indexes[t] = 0;
+            sizes[t] = 0;
+            top = t + 1;
+            return t;
+        }
+
+        void pop(int t) {
+            values[t] = null;
+            cursors[t] = null;
+            top = t;
+        }
+
+        // drop frames above base left by an exception, references are cleared so they are not retained by thread
+        void reset(int base) {
+            if (top > base) {
+                Arrays.fill(values, base, top, null);
+                Arrays.fill(cursors, base, top, null);
+            }
+            top = base;
+        }
+    }
+
+    private static final ThreadLocal<Frames> FRAMES = ThreadLocal.withInitial(Frames::new);
+
+    static int write(AbstractBuffer buf, Object o) {
+        Frames f = FRAMES.get();
+        int base = f.top;
+        try {
+            int size = push(buf, f, o);
+            if (size >= 0)
+                return size;
+            while (true) {
+                int t = f.top - 1;
+                Object value = f.values[t];
+                Object cursor = f.cursors[t];
+                int i = f.indexes[t];
+                Object child = null;
+                boolean hasNext;
+                if (cursor == null) {
+                    Object[] objects = (Object[]) value;
+                    hasNext = i < objects.length;
+                    if (hasNext)
+                        child = objects[i];
+                } else if (cursor instanceof ListWriter) {
+                    ListWriter w = (ListWriter) cursor;
+                    hasNext = i < w.size();
+                    if (hasNext)
+                        child = w.get(value, i);
+                } else {
+                    Iterator<?> it = (Iterator<?>) cursor;
+                    hasNext = it.hasNext();
+                    if (hasNext)
+                        child = it.next();
+                }
+
+                if (hasNext) {
+                    f.indexes[t] = i + 1;
+                    size = push(buf, f, child);
+                    if (size >= 0)
+                        f.sizes[t] += size;
+                    continue;
+                }
+
+                size = f.sizes[t];
+                size += buf.writeListPrefix(size);
+                f.pop(t);
+                if (t == base)
+                    return size;
+                f.sizes[t - 1] += size;
+            }
+        } finally {
+            f.reset(base);
+        }
+    }
+
+    // write leaf and return its size, or reserve list prefix, push a frame and return -1
+    private static int push(AbstractBuffer buf, Frames f, Object o) {
+        if (isLeaf(o))
+            return RlpWriter.writeValue(buf, o);
+        Object cursor;
+        if (o instanceof Object[]) {
+            if (((Object[]) o).length == 0)
+                return RlpWriter.writeEmptyList(buf);
+            cursor = null;
+        } else if (o.getClass().isArray()) {
+            // primitive arrays have no nested lists
+            return RlpWriter.writeValue(buf, o);
+        } else if (o instanceof Collection) {
+            Collection<?> col = (Collection<?>) o;
+            if (col.isEmpty())
+                return RlpWriter.writeEmptyList(buf);
+            cursor = col.iterator();
+        } else {
+            ObjectWriter w = Codecs.writer(o.getClass());
+            if (w == null)
+                w = RlpWriter.getWriter(o.getClass());
+            if (!(w instanceof ListWriter))
+                return w.writeToBuf(buf, o);
+            cursor = w;
+        }
+        buf.allocateListPrefix();
+        f.push(o, cursor);
+        return -1;
+    }
+
+    private static boolean isLeaf(Object o) {
+        return o == null || o instanceof RlpWritable || o instanceof byte[] || o instanceof byte[][] ||
+                o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte || o instanceof Boolean ||
+                o instanceof BigInteger || o instanceof String;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T decode(byte[] bin, long streamId, Class<T> clazz) {
+        Frames f = FRAMES.get();
+        int base = f.top;
+        try {
+            Object value = push(bin, f, streamId, clazz);
+            if (value != PENDING)
+                return (T) value;
+            while (true) {
+                int t = f.top - 1;
+                long j = RlpStream.iterateList(bin, f.lists[t], f.prevs[t]);
+                if (!StreamId.isEOF(j)) {
+                    f.prevs[t] = j;
+                    Class<?> type = childType(f, t);
+                    if (isPrimitive(type)) {
+                        setPrimitive(f, t, type, asPrimitive(bin, j, type));
+                        continue;
+                    }
+                    value = push(bin, f, j, type);
+                    if (value != PENDING)
+                        set(f, t, value);
+                    continue;
+                }
+
+                value = finish(f, t);
+                f.pop(t);
+                if (t == base)
+                    return (T) value;
+                set(f, t - 1, value);
+            }
+        } finally {
+            f.reset(base);
+        }
+    }
+
+    // decode leaf, or push a frame for list of children and return PENDING
+    private static Object push(byte[] bin, Frames f, long streamId, Class<?> clazz) {
+        Object cursor = cursorOf(clazz);
+        if (cursor == null)
+            return RlpStream.decodeUnregistered(bin, streamId, clazz);
+        if (!isFrame(cursor))
+            return ((RlpDecoder<?>) cursor).decode(bin, streamId);
+        if (StreamId.isNull(streamId))
+            return null;
+        if (!StreamId.isList(streamId))
+            throw listExpected(clazz);
+        Object value = cursor instanceof ListDecoder ?
+                ((ListDecoder<?>) cursor).begin() :
+                Array.newInstance((Class<?>) cursor, RlpStream.countChildren(bin, streamId));
+        int t = f.push(value, cursor);
+        f.lists[t] = streamId;
+        f.prevs[t] = streamId;
+        return PENDING;
+    }
+
+    // same traversal over RlpSource, frames keep the end of list and offset of its next child
+    // sources are read by frames whether Rlp.useIterativeTraversal or not, since they are meant for large inputs,
+    // lists inside one array backed segment are decoded by RlpStream.decode of the segment, which follows the switch
+    @SuppressWarnings("unchecked")
+    static <T> T decode(RlpSource src, long rawOffset, long header, Class<T> clazz) {
+        Frames f = FRAMES.get();
+        int base = f.top;
+        try {
+            Object value = push(src, f, rawOffset, header, clazz);
+            if (value != PENDING)
+                return (T) value;
+            while (true) {
+                int t = f.top - 1;
+                long p = f.prevs[t];
+                long end = f.lists[t];
+                if (p < end) {
+                    long h = SourceStreamId.decodeElement(src, p, end, false);
+                    f.prevs[t] = SourceStreamId.endOf(p, h);
+                    Class<?> type = childType(f, t);
+                    if (isPrimitive(type)) {
+                        setPrimitive(f, t, type, SourceDecoder.asPrimitive(src, p, h, type));
+                        continue;
+                    }
+                    value = push(src, f, p, h, type);
+                    if (value != PENDING)
+                        set(f, t, value);
+                    continue;
+                }
+
+                value = finish(f, t);
+                f.pop(t);
+                if (t == base)
+                    return (T) value;
+                set(f, t - 1, value);
+            }
+        } finally {
+            f.reset(base);
+        }
+    }
+
+    private static Object push(RlpSource src, Frames f, long rawOffset, long header, Class<?> clazz) {
+        // list inside one segment is decoded by the source of that segment
+        if (src instanceof BufferSource && SourceStreamId.isList(header)) {
+            BufferSource bs = (BufferSource) src;
+            int s = bs.segmentOf(rawOffset, SourceStreamId.endOf(rawOffset, header) - rawOffset);
+            if (s >= 0)
+                return SourceStreamId.decode(bs.part(s), rawOffset - bs.startOf(s), header, clazz);
+        }
+        Object cursor = cursorOf(clazz);
+        if (cursor == null)
+            return SourceDecoder.decodeLeaf(src, rawOffset, header, clazz);
+        if (!isFrame(cursor)) {
+            // decoders read byte array, so the element is copied
+            byte[] raw = SourceStreamId.rawOf(src, rawOffset, header);
+            return ((RlpDecoder<?>) cursor).decode(raw, RlpStream.decodeElement(raw, 0, raw.length, true));
+        }
+        if (!SourceStreamId.isList(header) && SourceStreamId.sizeOf(header) == 0)
+            return null;
+        if (!SourceStreamId.isList(header))
+            throw listExpected(clazz);
+        Object value;
+        if (cursor instanceof ListDecoder) {
+            value = ((ListDecoder<?>) cursor).begin();
+        } else {
+            long count = SourceStreamId.countChildren(src, rawOffset, header);
+            if (count > SourceStreamId.MAX_ARRAY_SIZE)
+                throw new RlpDecodeException("rlp list of " + count + " children exceeds max array size");
+            value = Array.newInstance((Class<?>) cursor, (int) count);
+        }
+        int t = f.push(value, cursor);
+        f.lists[t] = SourceStreamId.endOf(rawOffset, header);
+        f.prevs[t] = SourceStreamId.contentOffsetOf(rawOffset, header);
+        return PENDING;
+    }
+
+    // element type of object arrays and ListDecoder of classes are expanded as frames, other decoders decode leaves,
+    // null for builtin leaves, which are decoded by RlpStream.decodeUnregistered or SourceDecoder.decodeLeaf
+    private static Object cursorOf(Class<?> clazz) {
+        RlpDecoder<?> decoder = Codecs.decoder(clazz);
+        if (decoder != null)
+            return decoder;
+        if (clazz.isArray()) {
+            Class<?> elementType = clazz.getComponentType();
+            // primitive arrays and byte[][] have no nested lists
+            return elementType.isPrimitive() || elementType == byte[].class ? null : elementType;
+        }
+        return isLeafType(clazz) ? null : RlpStream.resolveDecoder(clazz);
+    }
+
+    private static boolean isFrame(Object cursor) {
+        return cursor instanceof Class || cursor instanceof ListDecoder;
+    }
+
+    private static RlpDecodeException listExpected(Class<?> clazz) {
+        if (clazz.isArray())
+            return new RlpDecodeException("rlp list expected when decode as " + clazz.getComponentType() + "[]");
+        return new RlpDecodeException("rlp list expected when decode as class " + clazz);
+    }
+
+    private static boolean isLeafType(Class<?> clazz) {
+        return clazz.isPrimitive() || clazz == Long.class || clazz == Integer.class || clazz == Short.class ||
+                clazz == Byte.class || clazz == Boolean.class || clazz == String.class || clazz == BigInteger.class ||
+                clazz == RlpBytes.class;
+    }
+
+    private static Class<?> childType(Frames f, int t) {
+        Object cursor = f.cursors[t];
+        if (cursor instanceof Class)
+            return (Class<?>) cursor;
+        return ((ListDecoder<?>) cursor).typeAt(f.indexes[t]);
+    }
+
+    // children of these types are only found in ListDecoder, since primitive arrays are leaves
+    private static boolean isPrimitive(Class<?> type) {
+        return type == long.class || type == int.class || type == short.class || type == byte.class || type == boolean.class;
+    }
+
+    // primitive widened to long, boolean as 1 or 0
+    private static long asPrimitive(byte[] bin, long streamId, Class<?> type) {
+        if (type == boolean.class)
+            return StreamId.asBoolean(bin, streamId) ? 1 : 0;
+        if (type == byte.class)
+            return StreamId.asByte(bin, streamId);
+        if (type == short.class)
+            return StreamId.asShort(bin, streamId);
+        if (type == int.class)
+            return StreamId.asInt(bin, streamId);
+        return StreamId.asLong(bin, streamId);
+    }
+
+    private static void setPrimitive(Frames f, int t, Class<?> type, long value) {
+        ListDecoder<?> decoder = (ListDecoder<?>) f.cursors[t];
+        int i = f.indexes[t]++;
+        if (type == boolean.class)
+            decoder.setBoolean(f.values[t], i, value != 0);
+        else
+            decoder.setLong(f.values[t], i, value);
+    }
+
+    private static void set(Frames f, int t, Object o) {
+        Object cursor = f.cursors[t];
+        int i = f.indexes[t]++;
+        if (cursor instanceof ListDecoder) {
+            ((ListDecoder<?>) cursor).set(f.values[t], i, o);
+            return;
+        }
+        try {
+            ((Object[]) f.values[t])[i] = o;
+        } catch (ArrayStoreException e) {
+            throw new RlpDecodeException("set array entry failed type " + cursor + " expected while " + o + " received");
+        }
+    }
+
+    private static Object finish(Frames f, int t) {
+        Object cursor = f.cursors[t];
+        if (cursor instanceof ListDecoder)
+            return ((ListDecoder<?>) cursor).finish(f.values[t], f.indexes[t]);
+        return f.values[t];
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.salpadding.rlpstream;
+
+// decoder of a class encoded as rlp list, children are decoded by the caller and set one by one
+// so nested lists could be expanded as frames by IterativeCodec instead of recursion
+// implemented by reflective and generated decoders of this library, and by codecs generated by rlp-stream-processor,
+// decoders not implementing it are decoded as leaves
+// null and non-list elements are checked by the caller before begin
+public interface ListDecoder<T> extends RlpDecoder<T> {
+    // state to be filled, e.g. instance without properties set or constructor arguments
+    Object begin();
+
+    // type of i-th child, throws if the list has more children than expected
+    Class<?> typeAt(int i);
+
+    void set(Object state, int i, Object value);
+
+    // children of type long, int, short and byte are set by setLong and children of type boolean by setBoolean,
+    // defaults box the value as its type, decoders override them to set primitives without boxing
+    default void setLong(Object state, int i, long value) {
+        Class<?> type = typeAt(i);
+        if (type == int.class)
+            set(state, i, (int) value);
+        else if (type == short.class)
+            set(state, i, (short) value);
+        else if (type == byte.class)
+            set(state, i, (byte) value);
+        else
+            set(state, i, value);
+    }
+
+    default void setBoolean(Object state, int i, boolean value) {
+        set(state, i, value);
+    }
+
+    // c is the number of children set, throws if it is not the number expected
+    T finish(Object state, int c);
+}
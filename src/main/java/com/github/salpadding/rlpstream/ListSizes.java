@@ -0,0 +1,36 @@
+package com.github.salpadding.rlpstream;
+
+import java.util.Arrays;
+
+// body sizes of lists recorded by SizeBuf, replayed by the second pass of two pass encoding
+// lists should be opened in the recorded order and closed with the recorded sizes, otherwise the writer isn't deterministic
+final class ListSizes {
+    private final int[] sizes;
+    private final int count;
+    private int lists;
+
+    // indices of lists not closed yet
+    private int[] open = new int[16];
+    private int depth;
+
+    ListSizes(int[] sizes, int count) {
+        this.sizes = sizes;
+        this.count = count;
+    }
+
+    // body size of the next list opened
+    int open() {
+        if (lists == count)
+            throw ExactBuf.sizeMismatch();
+        if (depth == open.length)
+            open = Arrays.copyOf(open, depth * 2);
+        open[depth++] = lists;
+        return sizes[lists++];
+    }
+
+    // close the list opened last, size is the body size summed by the writer
+    void close(int size) {
+        if (depth == 0 || sizes[open[--depth]] != size)
+            throw ExactBuf.sizeMismatch();
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.salpadding.rlpstream;
+
+// writer of a class encoded as rlp list, children are read one by one and written by the caller
+// so nested objects could be expanded as frames by IterativeCodec instead of recursion
+// implemented by reflective and generated writers of this library, and by codecs generated by rlp-stream-processor,
+// encoders not implementing it are written as leaves
+public interface ListWriter {
+    int size();
+
+    Object get(Object o, int i);
+}
@@ -0,0 +1,42 @@
+package com.github.salpadding.rlpstream;
+
+import java.io.Closeable;
+import java.io.DataOutput;
+
+// encoder owns an off heap buffer reused by every call, for callers encoding on their own threads
+// not thread safe, capacity grown by large objects is kept until close
+public final class ReusableEncoder implements Closeable {
+    private final UnsafeBuf buf;
+
+    public ReusableEncoder() {
+        this(RlpWriter.DEFAULT_INITIAL_CAP);
+    }
+
+    public ReusableEncoder(int initialCapacity) {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("initial capacity should be positive");
+        this.buf = new UnsafeBuf(initialCapacity);
+    }
+
+    public byte[] encode(Object o) {
+        write(o);
+        return buf.toByteArray();
+    }
+
+    public void encode(Object o, DataOutput out) {
+        write(o);
+        buf.intoStream(out);
+    }
+
+    private void write(Object o) {
+        if (buf.isClosed())
+            throw new IllegalStateException("encoder is closed");
+        buf.setSize(0);
+        RlpWriter.writeObject(buf, o);
+    }
+
+    @Override
+    public void close() {
+        buf.close();
+    }
+}
@@ -1,9 +1,13 @@
 package com.github.salpadding.rlpstream;
 
 import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+import com.github.salpadding.rlpstream.exceptions.RlpException;
 
 import java.io.DataOutput;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
@@ -18,9 +22,78 @@ public final class Rlp {
         useUnsafe = true;
     }
 
+    static boolean useGeneratedCodecs = false;
+
+    // generate dedicated codecs for @RlpProps, @RlpCreator and @RlpWriter classes instead of reflective ones
+    // should be called before first encoding/decoding, codecs already cached are not replaced
+    public static void useGeneratedCodecs() {
+        useGeneratedCodecs = true;
+    }
+
+    // fill no stack trace for rlp exceptions, error code and offset of RlpDecodeException are kept
+    public static void useStacklessExceptions() {
+        RlpException.setStackTraceEnabled(false);
+    }
+
+    static boolean useIterativeTraversal = false;
+
+    // traverse nested arrays, collections, @RlpProps and @RlpCreator constructor classes by an explicit stack instead of recursion,
+    // so depth of nesting is not limited by thread stack size
+    public static void useIterativeTraversal() {
+        useIterativeTraversal = true;
+    }
+
+    static boolean useTwoPassEncoding = false;
+
+    // encode by two passes, the first pass computes size of every list, the second pass writes into a buffer of exact size
+    // list prefixes are written in place instead of being reserved and shifted, writers should be deterministic
+    public static void useTwoPassEncoding() {
+        useTwoPassEncoding = true;
+    }
+
+    // max off heap bytes kept by the encode buffer pool, 0 to free buffers after every encoding
+    public static void setMaxPooledBytes(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("max pooled bytes should be non-negative");
+        BufferPool.maxRetained = bytes;
+        if (bytes == 0)
+            BufferPool.clear();
+    }
+
+    public static BufferPoolStats bufferPoolStats() {
+        return BufferPool.stats();
+    }
+
     private Rlp() {
     }
 
+    // register decoder for class, registered decoder takes precedence over @RlpCreator and @RlpProps
+    public static <T> void registerDecoder(Class<T> clazz, RlpDecoder<T> decoder) {
+        Codecs.setDecoder(clazz, decoder);
+    }
+
+    // register writer for class, registered writer takes precedence over @RlpWriter and @RlpProps
+    // objects implements RlpWritable are always written by RlpWritable.writeToBuf
+    public static <T> void registerWriter(Class<T> clazz, RlpEncoder<T> encoder) {
+        Codecs.setWriter(clazz, encoder);
+    }
+
+    // resolve decoders and writers of classes eagerly, e.g. at boot
+    // classes without @RlpCreator, @RlpProps or @RlpWriter are skipped
+    public static void preload(Class<?>... classes) {
+        for (Class<?> clazz : classes) {
+            Class<?> c = clazz;
+            while (c.isArray())
+                c = c.getComponentType();
+            if (c.isPrimitive())
+                continue;
+            if (Codecs.decoder(c) == null)
+                RlpStream.resolveDecoder(c);
+            if (Codecs.writer(c) == null && !RlpWritable.class.isAssignableFrom(c))
+                RlpWriter.resolveWriter(c);
+        }
+    }
+
     // rlp list encode
     public static byte[] encodeBytes(byte[] srcData) {
         // [0x80]
@@ -83,11 +156,47 @@ public final class Rlp {
         return new RlpList(bin, 0, bin.length, 0);
     }
 
+    public static RlpList decodeList(byte[] bin, RlpDecodeOptions options) {
+        long r = RlpStream.validate(bin, 0, bin.length, options);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return decodeList(bin);
+    }
+
     public static RlpList decodeList(byte[] bin, int offset) {
         long streamId = RlpStream.decodeElement(bin, offset, bin.length, false);
         return new RlpList(bin, streamId, 0);
     }
 
+    // check bin[off, off + len) is exactly one canonical rlp element, nested lists included, without decoding
+    // return RlpError.OK or an error packed as long, use RlpError.codeOf and RlpError.offsetOf to inspect it
+    public static long validate(byte[] bin, int off, int len) {
+        return RlpStream.validate(bin, off, len);
+    }
+
+    public static long validate(byte[] bin, int off, int len, RlpDecodeOptions options) {
+        return RlpStream.validate(bin, off, len, options);
+    }
+
+    public static long validate(byte[] bin) {
+        return RlpStream.validate(bin, 0, bin.length);
+    }
+
+    // validate remaining bytes of buf, position is not changed, offset of error is relative to position
+    // direct buffers are read in place, nothing is copied into heap
+    public static long validate(ByteBuffer buf) {
+        return validate(buf, RlpDecodeOptions.UNLIMITED);
+    }
+
+    public static long validate(ByteBuffer buf, RlpDecodeOptions options) {
+        if (buf.hasArray()) {
+            int start = buf.arrayOffset() + buf.position();
+            long r = RlpStream.validate(buf.array(), start, buf.remaining(), options);
+            return RlpError.isError(r) ? RlpError.error(RlpError.codeOf(r), RlpError.offsetOf(r) - start) : r;
+        }
+        return SourceStreamId.validate(RlpSource.of(buf), options);
+    }
+
     public static byte[] encodeElements(byte[]... elements) {
         if (elements.length == 0)
             return EMPTY_LIST;
@@ -153,6 +262,19 @@ public final class Rlp {
         return encodeBytes(str.getBytes(StandardCharsets.UTF_8));
     }
 
+    // write encoding into dst from off, return the size written, or -1 without writing if dst doesn't have enough space
+    public static int encodeLongInto(long l, byte[] dst, int off) {
+        return RlpWriter.encodeLongInto(l, dst, off);
+    }
+
+    public static int encodeBytesInto(byte[] srcData, byte[] dst, int off) {
+        return RlpWriter.encodeBytesInto(srcData, dst, off);
+    }
+
+    public static int encodeStringInto(String str, byte[] dst, int off) {
+        return RlpWriter.encodeBytesInto(str == null ? null : str.getBytes(StandardCharsets.UTF_8), dst, off);
+    }
+
     public static String decodeString(byte[] bin) {
         long streamId = RlpStream.decodeElement(bin, 0, bin.length, true);
         return new String(StreamId.asBytes(bin, streamId), StandardCharsets.UTF_8);
@@ -255,6 +377,85 @@ public final class Rlp {
         return RlpStream.decode(bin, streamId, clazz);
     }
 
+    // decode without throwing for malformed input, structure of the whole input is validated first
+    // so only value errors like number overflow are raised and caught internally
+    public static <T> RlpResult<T> tryDecode(byte[] bin, int offset, int length, Class<T> clazz, RlpDecodeOptions options) {
+        long r = RlpStream.validate(bin, offset, length, options);
+        if (RlpError.isError(r))
+            return RlpResult.error(RlpError.codeOf(r), RlpError.offsetOf(r));
+        try {
+            long streamId = RlpStream.decodeElement(bin, offset, offset + length, true);
+            return RlpResult.ok(RlpStream.decode(bin, streamId, clazz));
+        } catch (RlpDecodeException e) {
+            return RlpResult.error(e.getCode(), e.getOffset());
+        }
+    }
+
+    public static <T> RlpResult<T> tryDecode(byte[] bin, int offset, int length, Class<T> clazz) {
+        return tryDecode(bin, offset, length, clazz, RlpDecodeOptions.UNLIMITED);
+    }
+
+    public static <T> RlpResult<T> tryDecode(byte[] bin, Class<T> clazz) {
+        return tryDecode(bin, 0, bin.length, clazz, RlpDecodeOptions.UNLIMITED);
+    }
+
+    public static <T> RlpResult<T> tryDecode(byte[] bin, Class<T> clazz, RlpDecodeOptions options) {
+        return tryDecode(bin, 0, bin.length, clazz, options);
+    }
+
+    // decode untrusted input, the whole input is checked against limits of options before decoding
+    public static <T> T decode(byte[] bin, Class<T> clazz, RlpDecodeOptions options) {
+        long r = RlpStream.validate(bin, 0, bin.length, options);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return decode(bin, clazz);
+    }
+
+    // decode remaining bytes of heap or direct buffer as one element, position of buf is not changed
+    // direct buffers are decoded without copying into heap, except elements decoded by custom decoders
+    public static <T> T decode(ByteBuffer buf, Class<T> clazz) {
+        RlpSource src = RlpSource.of(buf);
+        return SourceStreamId.decode(src, 0, SourceStreamId.decodeElement(src), clazz);
+    }
+
+    // decode untrusted buffer, remaining bytes are checked against limits of options in place before decoding
+    public static <T> T decode(ByteBuffer buf, Class<T> clazz, RlpDecodeOptions options) {
+        long r = validate(buf, options);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return decode(buf, clazz);
+    }
+
+    // ordered segments are decoded as one concatenated input without copy, e.g. buffers of a scatter read
+    public static <T> T decode(ByteBuffer[] segments, Class<T> clazz) {
+        RlpSource src = segments(segments);
+        return SourceStreamId.decode(src, 0, SourceStreamId.decodeElement(src), clazz);
+    }
+
+    public static <T> T decode(ByteBuffer[] segments, Class<T> clazz, RlpDecodeOptions options) {
+        RlpSource src = segments(segments);
+        long r = SourceStreamId.validate(src, options);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return SourceStreamId.decode(src, 0, SourceStreamId.decodeElement(src), clazz);
+    }
+
+    // list view over remaining bytes of heap or direct buffer, position of buf is not changed
+    public static SourceRlpList decodeList(ByteBuffer buf) {
+        return new SourceRlpList(RlpSource.of(buf));
+    }
+
+    public static SourceRlpList decodeList(ByteBuffer[] segments) {
+        return new SourceRlpList(segments(segments));
+    }
+
+    // empty segments are rejected, rather than decoded as an input of no element
+    private static RlpSource segments(ByteBuffer[] segments) {
+        if (segments.length == 0)
+            throw new IllegalArgumentException("no segments");
+        return RlpSource.of(segments);
+    }
+
     public static byte[] decodeBytes(byte[] bin, int offset) {
         long streamId = RlpStream.decodeElement(bin, offset, bin.length, false);
         return StreamId.asBytes(bin, streamId);
@@ -269,6 +470,45 @@ public final class Rlp {
         return RlpWriter.encode(o);
     }
 
+    // size of Rlp.encode(o) without encoding, implement RlpWritable.encodedSize to skip writing of RlpWritable
+    public static int encodedLength(Object o) {
+        return RlpWriter.encodedLength(o);
+    }
+
+    // write encoding into dst from off without intermediate buffer, return the size written
+    // -1 is returned and dst is not modified if dst doesn't have enough space
+    public static int encodeInto(Object o, byte[] dst, int off) {
+        return RlpWriter.encodeInto(o, dst, off);
+    }
+
+    // write encoding into heap or direct dst from its position and advance the position, return the size written
+    // -1 is returned and dst is not modified if remaining of dst is not enough
+    public static int encodeInto(Object o, ByteBuffer dst) {
+        return RlpWriter.encodeInto(o, dst);
+    }
+
+    // encode into output stream in chunks, list sizes are computed first so the whole encoding is never held in memory
+    // objects are traversed twice so writers should be deterministic, return the size written
+    // body size of every list in o is kept until the end, one int per list rather than per nesting level,
+    // so memory grows with the number of lists, e.g. 4MB for a million lists
+    public static long encodeTo(Object o, OutputStream out) {
+        return RlpWriter.encodeTo(o, StreamBuf.sink(out));
+    }
+
+    public static long encodeTo(Object o, WritableByteChannel channel) {
+        return RlpWriter.encodeTo(o, StreamBuf.sink(channel));
+    }
+
+    // encode into byte buffers for GatheringByteChannel.write(ByteBuffer[]), prefixes and small items are packed into shared chunks
+    // byte arrays of at least threshold bytes are wrapped without copy, so they should not be modified until buffers are written
+    public static ByteBuffer[] encodeGathering(Object o, int threshold) {
+        return RlpWriter.encodeGathering(o, threshold);
+    }
+
+    public static ByteBuffer[] encodeGathering(Object o) {
+        return RlpWriter.encodeGathering(o, RlpWriter.DEFAULT_GATHER_THRESHOLD);
+    }
+
     public static void encode(Object o, DataOutput out) {
         RlpWriter.encode(o, out);
     }
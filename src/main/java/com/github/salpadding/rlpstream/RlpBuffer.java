@@ -1,6 +1,7 @@
 package com.github.salpadding.rlpstream;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import static com.github.salpadding.rlpstream.Constants.NULL;
 
@@ -9,6 +10,12 @@ public interface RlpBuffer {
 
     int writeBytes(byte[] bytes);
 
+    // write bytes[offset, offset + size) as a rlp item
+    // default copies the range, buffers of this library write it without copy
+    default int writeBytes(byte[] bytes, int offset, int size) {
+        return writeBytes(Arrays.copyOfRange(bytes, offset, offset + size));
+    }
+
     int writeLong(long l);
 
     int writeString(String s);
@@ -30,4 +37,16 @@ public interface RlpBuffer {
     }
 
     int writeElements(byte[]... elements);
+
+    // reserve prefix for a list, elements of the list should be written next
+    // required by generated codecs, implemented by buffers of this library, other implementations may not support it
+    default void allocateListPrefix() {
+        throw new UnsupportedOperationException("list prefix is not supported by " + getClass());
+    }
+
+    // write prefix of the list opened by allocateListPrefix, size = total size of elements written since then
+    // return the prefix size
+    default int writeListPrefix(int size) {
+        throw new UnsupportedOperationException("list prefix is not supported by " + getClass());
+    }
 }
@@ -0,0 +1,137 @@
+package com.github.salpadding.rlpstream;
+
+import lombok.SneakyThrows;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// immutable view of bytes in a backing array, decoded or encoded without copy
+// the backing array is shared, so it should not be modified while views of it are in use
+public final class RlpBytes implements Comparable<RlpBytes>, RlpWritable {
+    public static final RlpBytes EMPTY = new RlpBytes(Constants.EMPTY, 0, 0);
+
+    private final byte[] bin;
+    private final int offset;
+    private final int length;
+    private int hash;
+
+    private RlpBytes(byte[] bin, int offset, int length) {
+        this.bin = bin;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static RlpBytes wrap(byte[] bin) {
+        return new RlpBytes(bin, 0, bin.length);
+    }
+
+    public static RlpBytes wrap(byte[] bin, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bin.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " out of bounds " + bin.length);
+        return new RlpBytes(bin, offset, length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds " + length);
+        return bin[offset + index];
+    }
+
+    public RlpBytes slice(int from, int to) {
+        if (from < 0 || to > length || from > to)
+            throw new IndexOutOfBoundsException("slice [" + from + ", " + to + ") out of bounds " + length);
+        return new RlpBytes(bin, offset + from, to - from);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(bin, offset, offset + length);
+    }
+
+    // copy into dst from its position and advance the position
+    public void copyTo(ByteBuffer dst) {
+        dst.put(bin, offset, length);
+    }
+
+    public void copyTo(byte[] dst, int off) {
+        System.arraycopy(bin, offset, dst, off, length);
+    }
+
+    @SneakyThrows
+    public void writeTo(OutputStream out) {
+        out.write(bin, offset, length);
+    }
+
+    // read only buffer over the view
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bin, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public int writeToBuf(RlpBuffer buffer) {
+        return buffer.writeBytes(bin, offset, length);
+    }
+
+    @Override
+    public int encodedSize() {
+        return RlpWriter.bytesSize(bin, offset, length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RlpBytes))
+            return false;
+        RlpBytes other = (RlpBytes) o;
+        if (length != other.length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (bin[offset + i] != other.bin[other.offset + i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && length > 0) {
+            h = 1;
+            for (int i = 0; i < length; i++)
+                h = 31 * h + bin[offset + i];
+            hash = h;
+        }
+        return h;
+    }
+
+    // lexicographic order of unsigned bytes
+    @Override
+    public int compareTo(RlpBytes o) {
+        int n = Math.min(length, o.length);
+        for (int i = 0; i < n; i++) {
+            int c = (bin[offset + i] & 0xff) - (o.bin[o.offset + i] & 0xff);
+            if (c != 0)
+                return c;
+        }
+        return length - o.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            int b = bin[offset + i] & 0xff;
+            sb.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
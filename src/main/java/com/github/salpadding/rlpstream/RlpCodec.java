@@ -0,0 +1,7 @@
+package com.github.salpadding.rlpstream;
+
+// codec of a single class, implementations generated by rlp-stream-processor are discovered by ServiceLoader
+// and take precedence over @RlpCreator, @RlpWriter and @RlpProps reflection
+public interface RlpCodec<T> extends RlpDecoder<T>, RlpEncoder<T> {
+    Class<T> type();
+}
@@ -0,0 +1,51 @@
+package com.github.salpadding.rlpstream;
+
+import lombok.Getter;
+import lombok.ToString;
+
+// resource limits of decoding untrusted input, checked by a scan of the whole input before decoding
+// limits are unlimited by default, e.g. RlpDecodeOptions.UNLIMITED.withMaxDepth(16).withMaxElements(10000)
+@Getter
+@ToString
+public final class RlpDecodeOptions {
+    public static final RlpDecodeOptions UNLIMITED = new RlpDecodeOptions(
+            Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE
+    );
+
+    // bytes accounted for every element in addition to its content, roughly a reference plus an object header
+    static final int ELEMENT_OVERHEAD = 16;
+
+    // max nesting of lists, top level list is at depth 1
+    private final int maxDepth;
+    // max number of elements including nested ones and the top level one
+    private final int maxElements;
+    // max size of content of a single item
+    private final int maxItemSize;
+    // max of content sizes of all items plus ELEMENT_OVERHEAD per element
+    private final long maxAllocation;
+
+    private RlpDecodeOptions(int maxDepth, int maxElements, int maxItemSize, long maxAllocation) {
+        if (maxDepth < 0 || maxElements < 0 || maxItemSize < 0 || maxAllocation < 0)
+            throw new IllegalArgumentException("negative limit");
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.maxItemSize = maxItemSize;
+        this.maxAllocation = maxAllocation;
+    }
+
+    public RlpDecodeOptions withMaxDepth(int maxDepth) {
+        return new RlpDecodeOptions(maxDepth, maxElements, maxItemSize, maxAllocation);
+    }
+
+    public RlpDecodeOptions withMaxElements(int maxElements) {
+        return new RlpDecodeOptions(maxDepth, maxElements, maxItemSize, maxAllocation);
+    }
+
+    public RlpDecodeOptions withMaxItemSize(int maxItemSize) {
+        return new RlpDecodeOptions(maxDepth, maxElements, maxItemSize, maxAllocation);
+    }
+
+    public RlpDecodeOptions withMaxAllocation(long maxAllocation) {
+        return new RlpDecodeOptions(maxDepth, maxElements, maxItemSize, maxAllocation);
+    }
+}
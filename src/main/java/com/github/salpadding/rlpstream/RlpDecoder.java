@@ -0,0 +1,7 @@
+package com.github.salpadding.rlpstream;
+
+// decode an object from rlp element identified by stream id, stream id is passed as primitive to avoid boxing
+@FunctionalInterface
+public interface RlpDecoder<T> {
+    T decode(byte[] bin, long streamId);
+}
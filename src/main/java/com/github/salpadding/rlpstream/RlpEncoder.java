@@ -0,0 +1,7 @@
+package com.github.salpadding.rlpstream;
+
+// write an object into rlp buffer, return the size of bytes written
+@FunctionalInterface
+public interface RlpEncoder<T> {
+    int encode(RlpBuffer buf, T o);
+}
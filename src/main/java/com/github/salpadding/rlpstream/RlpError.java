@@ -0,0 +1,89 @@
+package com.github.salpadding.rlpstream;
+
+import static com.github.salpadding.rlpstream.Constants.*;
+
+// error codes of non throwing parsing and validation
+// an error is packed into a long as LIST_SIGN | MONO | code << 32 | offset, a combination no stream id could have,
+// offset is where the malformed element starts
+public final class RlpError {
+    private RlpError() {
+    }
+
+    public static final int OK = 0;
+    // no byte to parse
+    public static final int EMPTY = 1;
+    // element exceeds the input or its enclosing list
+    public static final int OUT_OF_BOUNDS = 2;
+    // bytes remain after the top level element
+    public static final int TRAILING_BYTES = 3;
+    // single byte below 0x80 encoded with a prefix
+    public static final int NON_CANONICAL_SHORT_ITEM = 4;
+    // long form prefix of item shorter than 56 bytes
+    public static final int NON_CANONICAL_LONG_ITEM = 5;
+    // long form prefix of list shorter than 56 bytes
+    public static final int NON_CANONICAL_LONG_LIST = 6;
+    // length of long form prefix starts with zero
+    public static final int LEADING_ZERO_LENGTH = 7;
+    // length of long form prefix doesn't fit in int
+    public static final int SIZE_OVERFLOW = 8;
+    // list found where item expected
+    public static final int NOT_AN_ITEM = 9;
+    // item found where list expected
+    public static final int NOT_A_LIST = 10;
+    // number with leading zero
+    public static final int LEADING_ZERO_NUMBER = 11;
+    // number doesn't fit in target type
+    public static final int NUMERIC_OVERFLOW = 12;
+    // content cannot be decoded as target type
+    public static final int INVALID_VALUE = 13;
+    // lists nested deeper than RlpDecodeOptions.maxDepth
+    public static final int DEPTH_EXCEEDED = 14;
+    // more elements than RlpDecodeOptions.maxElements
+    public static final int TOO_MANY_ELEMENTS = 15;
+    // item larger than RlpDecodeOptions.maxItemSize
+    public static final int ITEM_TOO_LARGE = 16;
+    // content exceeds RlpDecodeOptions.maxAllocation
+    public static final int ALLOCATION_EXCEEDED = 17;
+
+    private static final String[] MESSAGES = {
+            "ok",
+            "empty encoding",
+            "invalid rlp",
+            "invalid rlp, unexpected tails",
+            "invalid rlp, not a canonical short item",
+            "not a canonical long rlp item, length <= 55",
+            "not a canonical long rlp list, length <= 55",
+            "leading zero found",
+            "rlp size overflow",
+            "not a rlp item",
+            "not a rlp list",
+            "leading zero found",
+            "numeric overflow",
+            "invalid rlp value",
+            "rlp nesting too deep",
+            "too many rlp elements",
+            "rlp item too large",
+            "rlp allocation limit exceeded"
+    };
+
+    public static long error(int code, int offset) {
+        return LIST_SIGN_MASK | MONO_MASK | ((long) code << 32) | Integer.toUnsignedLong(offset);
+    }
+
+    // true if result of parsing or validation is an error, EOF is not an error
+    public static boolean isError(long result) {
+        return result != EOF && (result & (LIST_SIGN_MASK | MONO_MASK)) == (LIST_SIGN_MASK | MONO_MASK);
+    }
+
+    public static int codeOf(long result) {
+        return isError(result) ? (int) ((result & SIZE_MASK) >>> 32) : OK;
+    }
+
+    public static int offsetOf(long result) {
+        return (int) (result & OFFSET_MASK);
+    }
+
+    public static String messageOf(int code) {
+        return code >= 0 && code < MESSAGES.length ? MESSAGES[code] : "unknown rlp error " + code;
+    }
+}
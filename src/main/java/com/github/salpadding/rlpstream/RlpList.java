@@ -4,44 +4,66 @@ import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
 
 import java.math.BigInteger;
 
+// decoded list is safe to share across threads, lazily built index and encoding are published by volatile writes
 public final class RlpList {
     private final byte[] bin;
     private final long streamId;
-    private long[] children; // stream id of children
-    private int childrenCnt;
-    private byte[] encoded;
-
-    private void pushChildren(long streamId) {
-        if (children.length == childrenCnt) {
-            long[] tmp = children;
-            this.children = new long[tmp.length * 2];
-            System.arraycopy(tmp, 0, this.children, 0, childrenCnt);
+    // stream id of children indexed so far, children are indexed on demand up to the highest index requested
+    private volatile Index index;
+    // capacity hint of children
+    private final int bufSize;
+    // number of children, -1 if not counted yet
+    private volatile int size = -1;
+    private volatile byte[] encoded;
+
+    // children[0, count) are never changed once published, slots after count may be filled by a later index
+    // threads racing to fill a slot write the same stream id
+    private static final class Index {
+        private final long[] children;
+        private final int count;
+
+        private Index(long[] children, int count) {
+            this.children = children;
+            this.count = count;
         }
-        children[childrenCnt++] = streamId;
     }
 
-    private long getChildren(int index) {
-        if (index >= childrenCnt)
+    private long getChildren(int idx) {
+        Index current = this.index;
+        int count = current == null ? 0 : current.count;
+        if (idx < count)
+            return current.children[idx];
+        int size = this.size;
+        if (idx < 0 || (size >= 0 && idx >= size))
             throw new RlpDecodeException("array index overflow");
-        return children[index];
+        long[] children = current == null ? null : current.children;
+        if (children == null || children.length <= idx) {
+            int cap = Math.max(size >= 0 ? size : Math.max(bufSize, count * 2), idx + 1);
+            long[] tmp = new long[cap];
+            if (count > 0)
+                System.arraycopy(children, 0, tmp, 0, count);
+            children = tmp;
+        }
+        long now = count == 0 ? streamId : children[count - 1];
+        while (count <= idx) {
+            now = RlpStream.iterateList(bin, streamId, now);
+            if (StreamId.isEOF(now)) {
+                this.size = count;
+                throw new RlpDecodeException("array index overflow");
+            }
+            children[count++] = now;
+        }
+        this.index = new Index(children, count);
+        return children[idx];
     }
 
-
+    // children are not parsed until accessed, bufSize is the exact or estimated number of children
     RlpList(byte[] bin, long streamId, int bufSize) {
         this.streamId = streamId;
         this.bin = bin;
         if (!StreamId.isList(streamId))
-            throw new RlpDecodeException("not a rlp list");
-        this.children = new long[Math.max(bufSize, 1)];
-
-        long now = this.streamId;
-        while (true) {
-            now = RlpStream.iterateList(bin, streamId, now);
-            if (StreamId.isEOF(now)) {
-                break;
-            }
-            pushChildren(now);
-        }
+            throw new RlpDecodeException("not a rlp list", RlpError.NOT_A_LIST, StreamId.offsetOf(streamId));
+        this.bufSize = Math.max(bufSize, 1);
     }
 
     RlpList(byte[] encoded, int rawOffset, int rawLimit, int bufSize) {
@@ -52,8 +74,29 @@ public final class RlpList {
         );
     }
 
+    // count children of list without allocation
+    public static int countChildren(byte[] bin, long streamId) {
+        if (!StreamId.isList(streamId))
+            throw new RlpDecodeException("not a rlp list", RlpError.NOT_A_LIST, StreamId.offsetOf(streamId));
+        return RlpStream.countChildren(bin, streamId);
+    }
+
+    // children are counted from the last indexed one without being indexed
     public int size() {
-        return childrenCnt;
+        int size = this.size;
+        if (size >= 0)
+            return size;
+        Index current = this.index;
+        int count = current == null ? 0 : current.count;
+        long now = count == 0 ? streamId : current.children[count - 1];
+        while (true) {
+            now = RlpStream.iterateList(bin, streamId, now);
+            if (StreamId.isEOF(now))
+                break;
+            count++;
+        }
+        this.size = count;
+        return count;
     }
 
     public boolean isNullAt(int idx) {
@@ -81,6 +124,16 @@ public final class RlpList {
         return StreamId.asBytes(bin, streamId);
     }
 
+    public RlpBytes rlpBytesAt(int idx) {
+        long streamId = getChildren(idx);
+        return StreamId.asRlpBytes(bin, streamId);
+    }
+
+    public RlpBytes rawRlpBytesAt(int idx) {
+        long streamId = getChildren(idx);
+        return StreamId.rawRlpBytesOf(bin, streamId);
+    }
+
     public <T> T valueAt(int idx, Class<T> clazz) {
         long streamId = getChildren(idx);
         return RlpStream.decode(bin, streamId, clazz);
@@ -121,6 +174,7 @@ public final class RlpList {
     }
 
     public byte[] getEncoded() {
+        byte[] encoded = this.encoded;
         if (encoded != null)
             return encoded;
         int prefixSize = StreamId.prefixSizeOf(streamId);
@@ -128,11 +182,11 @@ public final class RlpList {
         int rawSize = StreamId.sizeOf(streamId) + prefixSize;
         if (rawSize == bin.length) {
             encoded = bin;
-            return encoded;
+        } else {
+            encoded = new byte[rawSize];
+            System.arraycopy(bin, rawOffset, encoded, 0, rawSize);
         }
-        byte[] r = new byte[rawSize];
-        System.arraycopy(bin, rawOffset, r, 0, rawSize);
-        encoded = r;
+        this.encoded = encoded;
         return encoded;
     }
 }
@@ -0,0 +1,99 @@
+package com.github.salpadding.rlpstream;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// read only mapping of a rlp file, files over 2GB are mapped by multiple segments
+// content is read from page cache on access, nothing is read when opened
+// reads from source and lists of the file throw IllegalStateException after close,
+// mappings are not unmapped explicitly since a racing read of unmapped memory crashes the jvm, they are released by gc
+public final class RlpMappedFile implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private volatile boolean closed;
+    @Getter
+    private final RlpSource source;
+    @Getter
+    private final long size;
+
+    private RlpMappedFile(MappedByteBuffer[] segments, long size) {
+        this.source = new MappedSource(RlpSource.of(segments));
+        this.size = size;
+    }
+
+    public static RlpMappedFile open(Path path) throws IOException {
+        return open(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    // segmentSize should be power of two, so segment of offset is found by shift
+    public static RlpMappedFile open(Path path, int segmentSize) throws IOException {
+        if (segmentSize <= 0 || Integer.bitCount(segmentSize) != 1)
+            throw new IllegalArgumentException("segment size " + segmentSize + " is not power of two");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int n = (int) ((size + segmentSize - 1) / segmentSize);
+            MappedByteBuffer[] segments = new MappedByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long position = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+            }
+            return new RlpMappedFile(segments, size);
+        }
+    }
+
+    // header of the whole file as one element
+    public long header() {
+        return SourceStreamId.decodeElement(source);
+    }
+
+    // the whole file as one list
+    public SourceRlpList asList() {
+        return new SourceRlpList(source);
+    }
+
+    public <T> T decode(Class<T> clazz) {
+        return SourceStreamId.decode(source, 0, header(), clazz);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // every read checks the file is still open
+    private final class MappedSource implements RlpSource {
+        private final RlpSource mapped;
+
+        private MappedSource(RlpSource mapped) {
+            this.mapped = mapped;
+        }
+
+        private void checkOpen() {
+            if (closed)
+                throw new IllegalStateException("rlp mapped file is closed");
+        }
+
+        @Override
+        public long size() {
+            return mapped.size();
+        }
+
+        @Override
+        public byte get(long index) {
+            checkOpen();
+            return mapped.get(index);
+        }
+
+        @Override
+        public void get(long index, byte[] dst, int off, int len) {
+            checkOpen();
+            mapped.get(index, dst, off, len);
+        }
+    }
+}
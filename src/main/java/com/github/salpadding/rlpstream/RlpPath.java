@@ -0,0 +1,39 @@
+package com.github.salpadding.rlpstream;
+
+import java.util.Arrays;
+
+// precompiled path of nested list indices, find the element at path without materializing lists
+public final class RlpPath {
+    private final int[] path;
+
+    private RlpPath(int[] path) {
+        this.path = path;
+    }
+
+    public static RlpPath of(int... path) {
+        for (int index : path) {
+            if (index < 0)
+                throw new IllegalArgumentException("path index should be non-negative");
+        }
+        return new RlpPath(path.clone());
+    }
+
+    // stream id of element at path from root, EOF if any index is out of range
+    public long find(byte[] bin, long root) {
+        return RlpStream.at(bin, root, path);
+    }
+
+    // bin should be exactly one rlp element
+    public long find(byte[] bin) {
+        return find(bin, RlpStream.decodeElement(bin, 0, bin.length, true));
+    }
+
+    public int depth() {
+        return path.length;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(path);
+    }
+}
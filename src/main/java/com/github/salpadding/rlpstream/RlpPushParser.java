@@ -0,0 +1,122 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import java.nio.ByteBuffer;
+
+import static com.github.salpadding.rlpstream.Constants.EOF;
+
+// incremental parser of concatenated rlp elements delivered in arbitrary fragments, e.g. by a selector loop
+// fragments are copied into a reassembly buffer, size of the pending element is parsed once and kept across calls,
+// so every byte is examined a constant number of times and incomplete input never throws
+// not thread safe, stream id returned by next() is valid on buffer() until next feed
+public final class RlpPushParser {
+    static final int DEFAULT_INITIAL_CAP = 4096;
+
+    private final int maxElementSize;
+    private byte[] buf = new byte[DEFAULT_INITIAL_CAP];
+    // unparsed bytes are buf[start, end)
+    private int start;
+    private int end;
+    // size of pending element including prefix, -1 if header is not complete
+    private long pending = -1;
+    private int needed = 1;
+
+    public RlpPushParser() {
+        this(RlpReader.DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    public RlpPushParser(int maxElementSize) {
+        if (maxElementSize <= 0)
+            throw new IllegalArgumentException("max element size should be positive");
+        this.maxElementSize = maxElementSize;
+    }
+
+    // consume all remaining bytes of src
+    public void feed(ByteBuffer src) {
+        int n = src.remaining();
+        reserve(n);
+        src.get(buf, end, n);
+        end += n;
+    }
+
+    public void feed(byte[] bytes, int offset, int size) {
+        reserve(size);
+        System.arraycopy(bytes, offset, buf, end, size);
+        end += size;
+    }
+
+    private void reserve(int n) {
+        if (buf.length - end >= n)
+            return;
+        int unparsed = end - start;
+        if (buf.length - unparsed >= n && start >= unparsed) {
+            // move unparsed bytes to the front, cheap since it is at most half of the buffer
+            System.arraycopy(buf, start, buf, 0, unparsed);
+        } else {
+            long cap = Math.max((long) unparsed + n, (long) buf.length * 2);
+            if (cap > Integer.MAX_VALUE)
+                throw new RlpDecodeException("reassembly buffer overflow");
+            byte[] tmp = new byte[(int) cap];
+            System.arraycopy(buf, start, tmp, 0, unparsed);
+            buf = tmp;
+        }
+        start = 0;
+        end = unparsed;
+    }
+
+    // buffer of elements returned by next()
+    public byte[] buffer() {
+        return buf;
+    }
+
+    // stream id of next complete element on buffer(), or EOF if more bytes are needed
+    // malformed or oversized elements throw RlpDecodeException
+    public long next() {
+        int available = end - start;
+        if (pending < 0) {
+            if (available == 0) {
+                needed = 1;
+                return EOF;
+            }
+            int headerSize = RlpStream.headerSizeOf(buf[start] & 0xff);
+            if (available < headerSize) {
+                needed = headerSize - available;
+                return EOF;
+            }
+            pending = RlpStream.elementSizeOf(buf, start);
+            if (pending > maxElementSize)
+                throw new RlpDecodeException("rlp element size " + pending + " exceeds " + maxElementSize);
+        }
+        if (available < pending) {
+            needed = (int) (pending - available);
+            return EOF;
+        }
+        int size = (int) pending;
+        long streamId = RlpStream.decodeElement(buf, start, start + size, true);
+        start += size;
+        pending = -1;
+        needed = end > start ? 0 : 1;
+        return streamId;
+    }
+
+    // at least how many bytes should be fed before next() could return an element, 0 if more elements may be buffered
+    public int needed() {
+        return needed;
+    }
+
+    // bytes fed but not returned as elements
+    public int buffered() {
+        return end - start;
+    }
+
+    // drop buffered bytes and state, e.g. after a decode error
+    public void reset() {
+        start = 0;
+        end = 0;
+        pending = -1;
+        needed = 1;
+        if (buf.length > DEFAULT_INITIAL_CAP)
+            buf = new byte[DEFAULT_INITIAL_CAP];
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+import lombok.SneakyThrows;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.github.salpadding.rlpstream.Constants.EOF;
+
+// reader of concatenated rlp elements from input stream or blocking channel
+// source is read ahead into a buffer reused by every element, the buffer grows to the largest element up to maxElementSize
+// stream id returned by next() is valid on buffer() until next read, decoders should not keep reference to the buffer
+public final class RlpReader implements Closeable {
+    interface Source extends Closeable {
+        // return -1 on end of stream
+        int read(byte[] bytes, int offset, int size) throws IOException;
+    }
+
+    static final int DEFAULT_READ_AHEAD = 64 * 1024;
+    static final int DEFAULT_MAX_ELEMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Source source;
+    private final int maxElementSize;
+    private byte[] buf;
+    // buffered bytes are buf[start, end)
+    private int start;
+    private int end;
+    private boolean eof;
+
+    public RlpReader(InputStream in) {
+        this(in, DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    public RlpReader(InputStream in, int maxElementSize) {
+        this(new Source() {
+            @Override
+            public int read(byte[] bytes, int offset, int size) throws IOException {
+                return in.read(bytes, offset, size);
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        }, maxElementSize);
+    }
+
+    public RlpReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_MAX_ELEMENT_SIZE);
+    }
+
+    public RlpReader(ReadableByteChannel channel, int maxElementSize) {
+        this(new Source() {
+            @Override
+            public int read(byte[] bytes, int offset, int size) throws IOException {
+                return channel.read(ByteBuffer.wrap(bytes, offset, size));
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        }, maxElementSize);
+    }
+
+    private RlpReader(Source source, int maxElementSize) {
+        if (maxElementSize <= 0)
+            throw new IllegalArgumentException("max element size should be positive");
+        this.source = source;
+        this.maxElementSize = maxElementSize;
+        this.buf = new byte[Math.min(DEFAULT_READ_AHEAD, maxElementSize)];
+    }
+
+    // buffer of element returned by next()
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public boolean hasNext() {
+        return fill(1);
+    }
+
+    // read next element, return stream id of it on buffer() or EOF if no more elements
+    public long next() {
+        if (!fill(1))
+            return EOF;
+        int headerSize = RlpStream.headerSizeOf(buf[start] & 0xff);
+        if (!fill(headerSize))
+            throw new RlpDecodeException("unexpected end of stream");
+        long size = RlpStream.elementSizeOf(buf, start);
+        if (size > maxElementSize)
+            throw new RlpDecodeException("rlp element size " + size + " exceeds " + maxElementSize);
+        if (!fill((int) size))
+            throw new RlpDecodeException("unexpected end of stream");
+        long streamId = RlpStream.decodeElement(buf, start, start + (int) size, true);
+        start += (int) size;
+        return streamId;
+    }
+
+    // decode next element, throws NoSuchElementException if no more elements
+    public <T> T next(Class<T> clazz) {
+        long streamId = next();
+        if (StreamId.isEOF(streamId))
+            throw new NoSuchElementException();
+        return RlpStream.decode(buf, streamId, clazz);
+    }
+
+    // decode next element after checking it against limits of options
+    public <T> T next(Class<T> clazz, RlpDecodeOptions options) {
+        long streamId = next();
+        if (StreamId.isEOF(streamId))
+            throw new NoSuchElementException();
+        int rawOffset = StreamId.offsetOf(streamId) - StreamId.prefixSizeOf(streamId);
+        long r = RlpStream.validate(buf, rawOffset, StreamId.offsetOf(streamId) + StreamId.sizeOf(streamId) - rawOffset, options);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return RlpStream.decode(buf, streamId, clazz);
+    }
+
+    // next element as list, the list owns a copy of the element
+    public RlpList nextList() {
+        long streamId = next();
+        if (StreamId.isEOF(streamId))
+            throw new NoSuchElementException();
+        int prefixSize = StreamId.prefixSizeOf(streamId);
+        int offset = StreamId.offsetOf(streamId) - prefixSize;
+        byte[] element = Arrays.copyOfRange(buf, offset, offset + prefixSize + StreamId.sizeOf(streamId));
+        return Rlp.decodeList(element);
+    }
+
+    public <T> Iterator<T> iterator(Class<T> clazz) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return RlpReader.this.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return RlpReader.this.next(clazz);
+            }
+        };
+    }
+
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(clazz), Spliterator.ORDERED), false);
+    }
+
+    // make sure n bytes are buffered, read as much as the buffer could hold, return false if stream ends before
+    @SneakyThrows
+    private boolean fill(int n) {
+        if (end - start >= n)
+            return true;
+        if (buf.length - start < n) {
+            if (buf.length < n)
+                buf = Arrays.copyOfRange(buf, start, start + Math.max(n, (int) Math.min(maxElementSize, buf.length * 2L)));
+            else
+                System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        while (end - start < n) {
+            if (eof)
+                break;
+            int r = source.read(buf, end, buf.length - end);
+            if (r < 0) {
+                eof = true;
+                break;
+            }
+            end += r;
+        }
+        return end - start >= n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
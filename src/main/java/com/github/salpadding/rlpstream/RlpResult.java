@@ -0,0 +1,54 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+// result of Rlp.tryDecode, either a decoded value or an error code with offset of the malformed element
+public final class RlpResult<T> {
+    private final T value;
+    private final int code;
+    private final int offset;
+
+    private RlpResult(T value, int code, int offset) {
+        this.value = value;
+        this.code = code;
+        this.offset = offset;
+    }
+
+    static <T> RlpResult<T> ok(T value) {
+        return new RlpResult<>(value, RlpError.OK, -1);
+    }
+
+    static <T> RlpResult<T> error(int code, int offset) {
+        return new RlpResult<>(null, code, offset);
+    }
+
+    public boolean isOk() {
+        return code == RlpError.OK;
+    }
+
+    // decoded value, throws if decoding failed
+    public T get() {
+        if (code != RlpError.OK)
+            throw new RlpDecodeException(RlpError.messageOf(code), code, offset);
+        return value;
+    }
+
+    public T orElse(T other) {
+        return code == RlpError.OK ? value : other;
+    }
+
+    // one of RlpError codes
+    public int getCode() {
+        return code;
+    }
+
+    // offset in input where error found, -1 if unknown or decoding succeed
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return code == RlpError.OK ? "RlpResult(" + value + ")" : "RlpResult(" + RlpError.messageOf(code) + " at " + offset + ")";
+    }
+}
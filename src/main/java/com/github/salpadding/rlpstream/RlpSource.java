@@ -0,0 +1,52 @@
+package com.github.salpadding.rlpstream;
+
+import java.nio.ByteBuffer;
+
+// random access input of rlp decoding addressed by long offsets, elements are navigated by SourceStreamId
+// byte arrays and byte buffers are both supported, byte buffers could be split into segments so input is not limited to 2GB
+public interface RlpSource {
+    long size();
+
+    byte get(long index);
+
+    // copy len bytes from index into dst at off
+    void get(long index, byte[] dst, int off, int len);
+
+    static RlpSource of(byte[] bin) {
+        return new BytesSource(bin);
+    }
+
+    static RlpSource of(byte[] bin, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bin.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " out of bounds " + bin.length);
+        return new BytesSource(bin, offset, length);
+    }
+
+    // remaining bytes of heap or direct buffer, position and limit of buf are not changed
+    // heap buffers are read from backing array, so elements are decoded by compact stream id without copy
+    static RlpSource of(ByteBuffer buf) {
+        if (buf.hasArray())
+            return new BytesSource(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        if (buf.isDirect())
+            return new DirectSource(buf);
+        return new BufferSource(new ByteBuffer[]{buf});
+    }
+
+    // concatenation of remaining bytes of segments, positions and limits of segments are not changed
+    // e.g. buffers of a scatter read, elements inside one segment are decoded as if the segment were the only input
+    static RlpSource of(ByteBuffer... segments) {
+        if (segments.length == 1)
+            return of(segments[0]);
+        return new BufferSource(segments);
+    }
+
+    // concatenation of byte array segments
+    static RlpSource of(byte[]... segments) {
+        if (segments.length == 1)
+            return of(segments[0]);
+        ByteBuffer[] buffers = new ByteBuffer[segments.length];
+        for (int i = 0; i < segments.length; i++)
+            buffers[i] = ByteBuffer.wrap(segments[i]);
+        return new BufferSource(buffers);
+    }
+}
@@ -9,7 +9,6 @@ import java.lang.reflect.*;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.function.BiFunction;
 
 import static com.github.salpadding.rlpstream.Constants.MONO_MASK;
 
@@ -21,22 +20,24 @@ final class RlpStream {
     private RlpStream() {
     }
 
-    static Map<Class<?>, BiFunction<byte[], Long, ?>> DECODER = new HashMap<>();
-
-    static <T> void addDecoder(Class<T> clazz, BiFunction<byte[], Long, T> decoder) {
-        Map<Class<?>, BiFunction<byte[], Long, ?>> m = new HashMap<>(DECODER);
-        m.put(clazz, decoder);
-        DECODER = m;
+    static <T> T decode(byte[] bin, long streamId, Class<T> clazz) {
+        if (Rlp.useIterativeTraversal)
+            return IterativeCodec.decode(bin, streamId, clazz);
+        return decodeValue(bin, streamId, clazz);
     }
 
-
+    // decode by recursion of java calls, nested values are decoded by decode
     @SuppressWarnings("unchecked")
-    @SneakyThrows
-    static <T> T decode(byte[] bin, long streamId, Class<T> clazz) {
-        BiFunction<byte[], Long, T> decoder = (BiFunction<byte[], Long, T>) DECODER.get(clazz);
+    static <T> T decodeValue(byte[] bin, long streamId, Class<T> clazz) {
+        RlpDecoder<T> decoder = Codecs.decoder(clazz);
         if (decoder != null)
-            return decoder.apply(bin, streamId);
+            return decoder.decode(bin, streamId);
+        return decodeUnregistered(bin, streamId, clazz);
+    }
 
+    // decode class without decoder in registry
+    @SuppressWarnings("unchecked")
+    static <T> T decodeUnregistered(byte[] bin, long streamId, Class<T> clazz) {
         int size = StreamId.sizeOf(streamId);
         boolean isList = StreamId.isList(streamId);
 
@@ -59,6 +60,9 @@ final class RlpStream {
         if (clazz == byte[].class) {
             return (T) StreamId.asBytes(bin, streamId);
         }
+        if (clazz == RlpBytes.class) {
+            return (T) StreamId.asRlpBytes(bin, streamId);
+        }
         // String is non-null, since we cannot differ between null empty string and null
         if (clazz == String.class) {
             return (T) new String(StreamId.asBytes(bin, streamId), StandardCharsets.UTF_8);
@@ -75,29 +79,26 @@ final class RlpStream {
 
             if (!isList)
                 throw new RlpDecodeException("rlp list expected when decode as " + clazz.getComponentType() + "[]");
-            List<Long> children = new ArrayList<>();
+            return (T) decodeArray(bin, streamId, clazz.getComponentType());
+        }
 
-            long j = streamId;
+        RlpDecoder<T> decoder = resolveDecoder(clazz);
+        if (decoder == null)
+            throw new RlpDecodeException("decode failed");
+        return decoder.decode(bin, streamId);
+    }
 
-            while (true) {
-                j = iterateList(bin, streamId, j);
-                if (StreamId.isEOF(j))
-                    break;
-                children.add(j);
-            }
-            Class<?> elementType = clazz.getComponentType();
-            Object res = Array.newInstance(elementType, children.size());
-            for (int i = 0; i < children.size(); i++) {
-                Object o = decode(bin, children.get(i), elementType);
-                try {
-                    Array.set(res, i, o);
-                } catch (Exception e) {
-                    throw new RlpDecodeException("set array entry failed type " + elementType + " expected while " + o + " received");
-                }
-            }
-            return (T) res;
-        }
+    // find decoder of class by annotations, the decoder is cached in registry
+    // return null if the class is not decodable
+    static <T> RlpDecoder<T> resolveDecoder(Class<T> clazz) {
+        RlpDecoder<T> de = createDecoder(clazz);
+        return de == null ? null : Codecs.putDecoderIfAbsent(clazz, de);
+    }
 
+    // decoder of class by annotations, not cached
+    @SuppressWarnings("unchecked")
+    @SneakyThrows
+    static <T> RlpDecoder<T> createDecoder(Class<T> clazz) {
         // priority
         // 1  decoder in cache
 
@@ -125,9 +126,10 @@ final class RlpStream {
                     throw new RlpDecodeException(
                             String.format("static method RlpCreator of class %s method should be %s %s(byte[] bin, long streamId)", clazz.getName(), clazz.getName(), m.getName())
                     );
-                StaticMethodDecoder<T> de = new StaticMethodDecoder<>(m);
-                addDecoder(clazz, de);
-                return de.apply(bin, streamId);
+                RlpDecoder<T> de = Rlp.useGeneratedCodecs ? CodecGenerator.staticMethodDecoder(m) : null;
+                if (de == null)
+                    de = new StaticMethodDecoder<>(m);
+                return de;
             }
         }
 
@@ -139,8 +141,6 @@ final class RlpStream {
                 noArg = con;
             }
             if (con.isAnnotationPresent(RlpCreator.class)) {
-                if (!isList)
-                    throw new RlpDecodeException("rlp list expected when decode as class " + clazz);
                 if (creator == null || creator.getParameterCount() < con.getParameterCount()) {
                     creator = con;
                 }
@@ -148,17 +148,13 @@ final class RlpStream {
         }
 
         if (creator != null) {
-            ConstructorDecoder<T> de = new ConstructorDecoder<>(creator);
-            addDecoder(clazz, de);
-            return de.apply(bin, streamId);
+            RlpDecoder<T> de = Rlp.useGeneratedCodecs ? CodecGenerator.constructorDecoder(creator) : null;
+            if (de == null)
+                de = new ConstructorDecoder<>(creator);
+            return de;
         }
 
         if (clazz.isAnnotationPresent(RlpProps.class)) {
-            if (StreamId.isNull(streamId))
-                return null;
-            if (!isList)
-                throw new RlpDecodeException("rlp list expected when decode as class " + clazz);
-
             if (noArg == null)
                 throw new RlpDecodeException("expect a no args constructor for class " + clazz);
 
@@ -193,11 +189,95 @@ final class RlpStream {
                 fields[i] = field;
             }
 
-            FieldsDecoder<T> de = new FieldsDecoder<>(noArg, setters, setterTypes, fields);
-            addDecoder(clazz, de);
-            return de.apply(bin, streamId);
+            RlpDecoder<T> de = Rlp.useGeneratedCodecs ? CodecGenerator.fieldsDecoder(noArg, setters, setterTypes, fields) : null;
+            if (de == null)
+                de = new FieldsDecoder<>(noArg, setters, setterTypes, fields);
+            return de;
+        }
+        return null;
+    }
+
+    // count children first, then fill the array in second pass
+    // primitive arrays are filled without boxing
+    static Object decodeArray(byte[] bin, long streamId, Class<?> elementType) {
+        int count = countChildren(bin, streamId);
+        long j = streamId;
+        if (elementType == long.class) {
+            long[] res = new long[count];
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                res[i] = StreamId.asLong(bin, j);
+            }
+            return res;
+        }
+        if (elementType == int.class) {
+            int[] res = new int[count];
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                res[i] = StreamId.asInt(bin, j);
+            }
+            return res;
+        }
+        if (elementType == short.class) {
+            short[] res = new short[count];
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                res[i] = StreamId.asShort(bin, j);
+            }
+            return res;
+        }
+        if (elementType == boolean.class) {
+            boolean[] res = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                res[i] = StreamId.asBoolean(bin, j);
+            }
+            return res;
+        }
+        if (elementType == byte[].class) {
+            byte[][] res = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                res[i] = StreamId.asBytes(bin, j);
+            }
+            return res;
+        }
+        if (!elementType.isPrimitive()) {
+            Object[] res = (Object[]) Array.newInstance(elementType, count);
+            for (int i = 0; i < count; i++) {
+                j = iterateList(bin, streamId, j);
+                Object o = decode(bin, j, elementType);
+                try {
+                    res[i] = o;
+                } catch (ArrayStoreException e) {
+                    throw new RlpDecodeException("set array entry failed type " + elementType + " expected while " + o + " received");
+                }
+            }
+            return res;
+        }
+
+        Object res = Array.newInstance(elementType, count);
+        for (int i = 0; i < count; i++) {
+            j = iterateList(bin, streamId, j);
+            Object o = decode(bin, j, elementType);
+            try {
+                Array.set(res, i, o);
+            } catch (Exception e) {
+                throw new RlpDecodeException("set array entry failed type " + elementType + " expected while " + o + " received");
+            }
+        }
+        return res;
+    }
+
+    static int countChildren(byte[] bin, long listStreamId) {
+        int count = 0;
+        long j = listStreamId;
+        while (true) {
+            j = iterateList(bin, listStreamId, j);
+            if (StreamId.isEOF(j))
+                return count;
+            count++;
         }
-        throw new RlpDecodeException("decode failed");
     }
 
     /**
@@ -230,18 +310,48 @@ final class RlpStream {
         return decodeElement(bin, (prevSize + prevOffset), listLimit, false);
     }
 
+    // index-th child of list, siblings before it are skipped by their prefixes, EOF if the list has fewer children
+    static long childAt(byte[] bin, long listStreamId, int index) {
+        if (!StreamId.isList(listStreamId))
+            throw new RlpDecodeException("rlp list expected at path", RlpError.NOT_A_LIST, StreamId.offsetOf(listStreamId));
+        if (index < 0)
+            return Constants.EOF;
+        long j = listStreamId;
+        for (int i = 0; i <= index; i++) {
+            j = iterateList(bin, listStreamId, j);
+            if (StreamId.isEOF(j))
+                return j;
+        }
+        return j;
+    }
+
+    static long at(byte[] bin, long streamId, int[] path) {
+        long j = streamId;
+        for (int index : path) {
+            j = childAt(bin, j, index);
+            if (StreamId.isEOF(j))
+                return j;
+        }
+        return j;
+    }
+
     static long decodeElement(byte[] bin, int rawOffset, int rawLimit, boolean full) {
+        long r = parseElement(bin, rawOffset, rawLimit, full);
+        if (RlpError.isError(r))
+            throw RlpDecodeException.of(r);
+        return r;
+    }
+
+    // same as decodeElement, but return RlpError packed error instead of throwing
+    static long parseElement(byte[] bin, int rawOffset, int rawLimit, boolean full) {
         if (rawLimit <= rawOffset)
-            throw new RlpDecodeException("empty encoding");
+            return RlpError.error(RlpError.EMPTY, rawOffset);
         int prefix = bin[rawOffset] & 0xff;
 
         if (prefix < Constants.OFFSET_SHORT_ITEM) {
             // prefix size = 0, length = 1
-            // assert size
-            if (rawOffset + 1 > rawLimit)
-                throw new RlpDecodeException("invalid rlp");
             if (full && rawOffset + 1 != rawLimit)
-                throw new RlpDecodeException("invalid rlp, unexpected tails");
+                return RlpError.error(RlpError.TRAILING_BYTES, rawOffset);
             // prefix size = 0, actual size = 1, offset = rawOffset
             return (1L << 32) | (Integer.toUnsignedLong(rawOffset)) | MONO_MASK;
         }
@@ -249,53 +359,158 @@ final class RlpStream {
         if (prefix <= Constants.OFFSET_LONG_ITEM) {
             // prefix size = 1, length
             int length = prefix - Constants.OFFSET_SHORT_ITEM;
-            if (rawOffset + 1 + length > rawLimit)
-                throw new RlpDecodeException("invalid rlp");
-            if (full && rawOffset + 1 + length != rawLimit)
-                throw new RlpDecodeException("invalid rlp, unexpected tails");
-            // prefix size = 1, actual size = length, LIST_SIGN = false
+            long end = (long) rawOffset + 1 + length;
+            if (end > rawLimit)
+                return RlpError.error(RlpError.OUT_OF_BOUNDS, rawOffset);
+            if (full && end != rawLimit)
+                return RlpError.error(RlpError.TRAILING_BYTES, rawOffset);
             if (length == 1 && (bin[rawOffset + 1] & 0xff) < Constants.OFFSET_SHORT_ITEM)
-                throw new RlpDecodeException("invalid rlp, not a canonical short item");
+                return RlpError.error(RlpError.NON_CANONICAL_SHORT_ITEM, rawOffset);
+            // prefix size = 1, actual size = length, LIST_SIGN = false
             return (Integer.toUnsignedLong(length) << 32) | (Integer.toUnsignedLong(rawOffset + 1));
         }
 
-        if (prefix < Constants.OFFSET_SHORT_LIST) {
-            int lengthBits = prefix - Constants.OFFSET_LONG_ITEM; // length of length the encoded bytes
-            int len = (int) StreamId.asLong(bin, rawOffset + 1, lengthBits);
-            if (len < 0)
-                throw new RlpDecodeException("rlp size overflow");
-
-            if (len < Constants.SIZE_THRESHOLD)
-                throw new RlpDecodeException("not a canonical long rlp item, length <= 55");
-            if (rawOffset + 1 + lengthBits + len > rawLimit)
-                throw new RlpDecodeException("invalid rlp");
-            return
-                    (Integer.toUnsignedLong(len) << 32) | Integer.toUnsignedLong(1 + lengthBits + rawOffset);
+        if (prefix >= Constants.OFFSET_SHORT_LIST && prefix <= Constants.OFFSET_LONG_LIST) {
+            int length = prefix - Constants.OFFSET_SHORT_LIST;
+            long end = (long) rawOffset + 1 + length;
+            if (end > rawLimit)
+                return RlpError.error(RlpError.OUT_OF_BOUNDS, rawOffset);
+            if (full && end != rawLimit)
+                return RlpError.error(RlpError.TRAILING_BYTES, rawOffset);
+            // prefix size = 1, actual size = length, LIST_SIGN = true
+            return (Integer.toUnsignedLong(length) << 32) | Constants.LIST_SIGN_MASK | Integer.toUnsignedLong(rawOffset + 1);
         }
 
-        if (prefix <= Constants.OFFSET_LONG_LIST) {
-            int len = prefix - Constants.OFFSET_SHORT_LIST; // length of length the encoded bytes
-            // skip preifx
-            if (rawOffset + 1 + len > rawLimit)
-                throw new RlpDecodeException("invalid rlp");
-            if (full && rawOffset + 1 + len != rawLimit)
-                throw new RlpDecodeException("invalid rlp, unexpected tails");
-            // prefix size = 1, acutal size = len, LIST_SIGN = true
-            return (Integer.toUnsignedLong(len) << 32) | Constants.LIST_SIGN_MASK | Integer.toUnsignedLong(rawOffset + 1);
+        // long item or long list, length of length follows prefix
+        boolean isList = prefix > Constants.OFFSET_LONG_LIST;
+        int lengthBits = prefix - (isList ? Constants.OFFSET_LONG_LIST : Constants.OFFSET_LONG_ITEM);
+        if ((long) rawOffset + 1 + lengthBits > rawLimit)
+            return RlpError.error(RlpError.OUT_OF_BOUNDS, rawOffset);
+        if (bin[rawOffset + 1] == 0)
+            return RlpError.error(RlpError.LEADING_ZERO_LENGTH, rawOffset);
+        if (lengthBits > 4)
+            return RlpError.error(RlpError.SIZE_OVERFLOW, rawOffset);
+        long length = 0;
+        for (int i = 0; i < lengthBits; i++)
+            length = (length << 8) | (bin[rawOffset + 1 + i] & 0xffL);
+        if (length > Integer.MAX_VALUE)
+            return RlpError.error(RlpError.SIZE_OVERFLOW, rawOffset);
+        if (length < Constants.SIZE_THRESHOLD)
+            return RlpError.error(isList ? RlpError.NON_CANONICAL_LONG_LIST : RlpError.NON_CANONICAL_LONG_ITEM, rawOffset);
+        long end = (long) rawOffset + 1 + lengthBits + length;
+        if (end > rawLimit)
+            return RlpError.error(RlpError.OUT_OF_BOUNDS, rawOffset);
+        if (full && end != rawLimit)
+            return RlpError.error(RlpError.TRAILING_BYTES, rawOffset);
+        // prefix size = 1 + lengthBits, actual size = length
+        return (length << 32) | (isList ? Constants.LIST_SIGN_MASK : 0) | Integer.toUnsignedLong(rawOffset + 1 + lengthBits);
+    }
+
+    // stack of list limits used by validate, reused by thread
+    private static final int MAX_RETAINED_STACK = 4096;
+    private static final ThreadLocal<int[]> VALIDATE_STACK = ThreadLocal.withInitial(() -> new int[16]);
+
+    // check the whole tree of bin[offset, offset + length) is one canonical rlp element without decoding
+    // nested elements are walked iteratively, return RlpError.OK or packed error
+    static long validate(byte[] bin, int offset, int length) {
+        return validate(bin, offset, length, RlpDecodeOptions.UNLIMITED);
+    }
+
+    // validate and check resource limits of options, error offset of limits is where the exceeding element starts
+    static long validate(byte[] bin, int offset, int length, RlpDecodeOptions options) {
+        if (offset < 0 || length < 0 || offset > bin.length - length)
+            throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " out of bounds " + bin.length);
+        int maxDepth = options.getMaxDepth();
+        int maxElements = options.getMaxElements();
+        int maxItemSize = options.getMaxItemSize();
+        long maxAllocation = options.getMaxAllocation();
+
+        long root = parseElement(bin, offset, offset + length, true);
+        if (RlpError.isError(root))
+            return root;
+        if (maxElements < 1)
+            return RlpError.error(RlpError.TOO_MANY_ELEMENTS, offset);
+        if (!StreamId.isList(root)) {
+            if (StreamId.sizeOf(root) > maxItemSize)
+                return RlpError.error(RlpError.ITEM_TOO_LARGE, offset);
+            if (RlpDecodeOptions.ELEMENT_OVERHEAD + (long) StreamId.sizeOf(root) > maxAllocation)
+                return RlpError.error(RlpError.ALLOCATION_EXCEEDED, offset);
+            return RlpError.OK;
+        }
+        if (maxDepth < 1)
+            return RlpError.error(RlpError.DEPTH_EXCEEDED, offset);
+
+        int[] stack = VALIDATE_STACK.get();
+        // number of open lists, limits of enclosing lists are at stack[0, depth - 1)
+        int depth = 1;
+        int count = 1;
+        long allocation = RlpDecodeOptions.ELEMENT_OVERHEAD;
+        int pos = StreamId.offsetOf(root);
+        int end = pos + StreamId.sizeOf(root);
+        while (true) {
+            if (pos == end) {
+                if (depth == 1)
+                    return allocation > maxAllocation ? RlpError.error(RlpError.ALLOCATION_EXCEEDED, offset) : RlpError.OK;
+                end = stack[--depth - 1];
+                continue;
+            }
+            long e = parseElement(bin, pos, end, false);
+            if (RlpError.isError(e))
+                return e;
+            if (++count > maxElements)
+                return RlpError.error(RlpError.TOO_MANY_ELEMENTS, pos);
+            int size = StreamId.sizeOf(e);
+            int next = StreamId.offsetOf(e) + size;
+            if (StreamId.isList(e)) {
+                if (depth == maxDepth)
+                    return RlpError.error(RlpError.DEPTH_EXCEEDED, pos);
+                allocation += RlpDecodeOptions.ELEMENT_OVERHEAD;
+                // descend, remember limit of current list
+                if (depth > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    // deep stacks of hostile input are not retained by thread
+                    if (stack.length <= MAX_RETAINED_STACK)
+                        VALIDATE_STACK.set(stack);
+                }
+                stack[depth++ - 1] = end;
+                end = next;
+                pos = StreamId.offsetOf(e);
+            } else {
+                if (size > maxItemSize)
+                    return RlpError.error(RlpError.ITEM_TOO_LARGE, pos);
+                allocation += RlpDecodeOptions.ELEMENT_OVERHEAD + size;
+                if (allocation > maxAllocation)
+                    return RlpError.error(RlpError.ALLOCATION_EXCEEDED, pos);
+                pos = next;
+            }
         }
-        int lengthBits = prefix - Constants.OFFSET_LONG_LIST; // length of length the encoded list
-        int len = (int) StreamId.asLong(bin, rawOffset + 1, lengthBits);
-        if (len < 0)
-            throw new RlpDecodeException("rlp size overflow");
-        if (len < Constants.SIZE_THRESHOLD)
-            throw new RlpDecodeException("not a canonical long rlp list, length <= 55");
-
-        if (rawOffset + 1 + lengthBits + len > rawLimit)
-            throw new RlpDecodeException("invalid rlp");
-        if (full && rawOffset + 1 + lengthBits + len != rawLimit)
-            throw new RlpDecodeException("invalid rlp, unexpected tails");
-        // prefix size = 1 + lengthBits, acutal size = len, LIST_SIGN = true
-        return (Integer.toUnsignedLong(len) << 32) | Constants.LIST_SIGN_MASK | Integer.toUnsignedLong(rawOffset + 1 + lengthBits);
+    }
+
+    // bytes needed to know the size of element starts with prefix
+    static int headerSizeOf(int prefix) {
+        if (prefix <= Constants.OFFSET_LONG_ITEM)
+            return 1;
+        if (prefix < Constants.OFFSET_SHORT_LIST)
+            return 1 + prefix - Constants.OFFSET_LONG_ITEM;
+        if (prefix <= Constants.OFFSET_LONG_LIST)
+            return 1;
+        return 1 + prefix - Constants.OFFSET_LONG_LIST;
+    }
+
+    // size of element at offset including prefix, only header of the element is read
+    static long elementSizeOf(byte[] bin, int offset) {
+        int prefix = bin[offset] & 0xff;
+        if (prefix < Constants.OFFSET_SHORT_ITEM)
+            return 1;
+        if (prefix <= Constants.OFFSET_LONG_ITEM)
+            return 1 + prefix - Constants.OFFSET_SHORT_ITEM;
+        if (prefix >= Constants.OFFSET_SHORT_LIST && prefix <= Constants.OFFSET_LONG_LIST)
+            return 1 + prefix - Constants.OFFSET_SHORT_LIST;
+        int lengthBits = headerSizeOf(prefix) - 1;
+        long len = StreamId.asLong(bin, offset + 1, lengthBits);
+        if (len < 0 || len > Integer.MAX_VALUE)
+            throw new RlpDecodeException("rlp size overflow", RlpError.SIZE_OVERFLOW, offset);
+        return 1 + lengthBits + len;
     }
 
     // get raw without prefix
@@ -2,4 +2,10 @@ package com.github.salpadding.rlpstream;
 
 public interface RlpWritable {
     int writeToBuf(RlpBuffer buffer);
+
+    // exact number of bytes writeToBuf writes, or -1 if unknown
+    // Rlp.encodedLength uses it instead of calling writeToBuf
+    default int encodedSize() {
+        return -1;
+    }
 }
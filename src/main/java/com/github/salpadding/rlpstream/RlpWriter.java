@@ -10,10 +10,10 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 final class RlpWriter {
     private RlpWriter() {
@@ -21,26 +21,193 @@ final class RlpWriter {
 
     static final int DEFAULT_INITIAL_CAP = 256;
 
-    // write result = LIST_SIGN | prefix size | content size
-    static Map<Class<?>, ObjectWriter> OBJECT_WRITERS = new HashMap<>();
-
     // max prefix size = 1(length of length) + 4(length) = 5
     static final int MAX_PREFIX_SIZE = 5;
 
     static byte[] encode(Object o) {
-        try (AbstractBuffer buf = Rlp.useUnsafe ? new UnsafeBuf(DEFAULT_INITIAL_CAP) : BytesBuf.alloc(DEFAULT_INITIAL_CAP)) {
+        if (Rlp.useTwoPassEncoding)
+            return encodeExact(o);
+        if (!Rlp.useUnsafe) {
+            BytesBuf buf = BytesBuf.alloc(DEFAULT_INITIAL_CAP);
+            writeObject(buf, o);
+            return buf.toByteArray();
+        }
+        int[] last = LAST_ENCODED_SIZE.get();
+        UnsafeBuf buf = BufferPool.acquire(sizeHint(o, last[0]));
+        try {
             writeObject(buf, o);
+            last[0] = buf.getSize();
             return buf.toByteArray();
+        } finally {
+            BufferPool.release(buf);
         }
     }
 
+    // size of the last pooled encoding of each thread, so a large encoding in one thread doesn't affect others
+    private static final ThreadLocal<int[]> LAST_ENCODED_SIZE = ThreadLocal.withInitial(() -> new int[1]);
+
+    // expected size of encoding of o when acquiring a pooled buffer
+    // exact for writables that know their size, otherwise the size of the last encoding of this thread
+    static int sizeHint(Object o, int last) {
+        int n = o instanceof RlpWritable ? ((RlpWritable) o).encodedSize() : -1;
+        return n >= 0 ? n : last;
+    }
+
+    // compute sizes of all lists first, then write into a buffer of exact size with prefixes written in place
+    // avoids reserving MAX_PREFIX_SIZE bytes and moving body for every list, at the cost of traversing o twice
+    static byte[] encodeExact(Object o) {
+        SizeBuf sizes = new SizeBuf(true);
+        writeObject(sizes, o);
+        ExactBuf buf = new ExactBuf(sizes.checkedSize(), sizes.getSizes());
+        writeObject(buf, o);
+        return buf.toByteArray();
+    }
+
+    // encode into dst from off by two passes, return the size written
+    // nothing is written and -1 is returned if dst doesn't have enough space
+    static int encodeInto(Object o, byte[] dst, int off) {
+        if (off < 0 || off > dst.length)
+            throw new IndexOutOfBoundsException("offset " + off + " out of bounds " + dst.length);
+        SizeBuf sizes = new SizeBuf(true);
+        writeObject(sizes, o);
+        int n = sizes.checkedSize();
+        if (n > dst.length - off)
+            return -1;
+        ExactBuf buf = new ExactBuf(dst, off, n, sizes.getSizes());
+        writeObject(buf, o);
+        buf.checkFull();
+        return n;
+    }
+
+    // encode into dst from its position and advance the position, return -1 without writing if remaining is not enough
+    static int encodeInto(Object o, ByteBuffer dst) {
+        if (dst.isReadOnly())
+            throw new ReadOnlyBufferException();
+        SizeBuf sizes = new SizeBuf(true);
+        writeObject(sizes, o);
+        int n = sizes.checkedSize();
+        if (n > dst.remaining())
+            return -1;
+        if (dst.hasArray()) {
+            ExactBuf buf = new ExactBuf(dst.array(), dst.arrayOffset() + dst.position(), n, sizes.getSizes());
+            writeObject(buf, o);
+            buf.checkFull();
+        } else {
+            ByteBufferBuf buf = new ByteBufferBuf(dst, n, sizes.getSizes());
+            writeObject(buf, o);
+            buf.checkFull();
+        }
+        dst.position(dst.position() + n);
+        return n;
+    }
+
+    // chunk size of streaming encoding
+    static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    // encode by two passes into sink, memory used is the chunk and one int per list instead of the whole encoding
+    static long encodeTo(Object o, StreamBuf.Sink sink) {
+        SizeBuf sizes = new SizeBuf(true);
+        writeObject(sizes, o);
+        long n = sizes.getSize();
+        StreamBuf buf = new StreamBuf(sink, (int) Math.min(n, STREAM_CHUNK_SIZE), sizes.getSizes());
+        writeObject(buf, o);
+        buf.flush();
+        if (buf.written() != n)
+            throw ExactBuf.sizeMismatch();
+        return n;
+    }
+
+    // chunk size of gathering encoding, and default size of byte arrays wrapped instead of copied
+    static final int GATHER_CHUNK_SIZE = 4096;
+    static final int DEFAULT_GATHER_THRESHOLD = 1024;
+
+    // encode by two passes into byte buffers, byte arrays with size >= threshold are referenced instead of copied
+    static ByteBuffer[] encodeGathering(Object o, int threshold) {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("threshold should be positive");
+        SizeBuf sizes = new SizeBuf(true);
+        writeObject(sizes, o);
+        int n = sizes.checkedSize();
+        GatherBuf buf = new GatherBuf(threshold, Math.min(n, GATHER_CHUNK_SIZE), sizes.getSizes());
+        writeObject(buf, o);
+        if (buf.getSize() != n)
+            throw ExactBuf.sizeMismatch();
+        return buf.toBuffers();
+    }
+
+    static int encodeLongInto(long l, byte[] dst, int off) {
+        if (off < 0 || off > dst.length)
+            throw new IndexOutOfBoundsException("offset " + off + " out of bounds " + dst.length);
+        int n = longSize(l);
+        if (n > dst.length - off)
+            return -1;
+        writeLong(new ExactBuf(dst, off, n, null), l);
+        return n;
+    }
+
+    static int encodeBytesInto(byte[] bytes, byte[] dst, int off) {
+        if (off < 0 || off > dst.length)
+            throw new IndexOutOfBoundsException("offset " + off + " out of bounds " + dst.length);
+        int n = bytesSize(bytes);
+        if (n > dst.length - off)
+            return -1;
+        writeBytes(new ExactBuf(dst, off, n, null), bytes);
+        return n;
+    }
+
+    // size written by writeLong
+    static int longSize(long l) {
+        if (l == 0 || l == 1)
+            return 1;
+        int size = 8 - Long.numberOfLeadingZeros(l) / Byte.SIZE;
+        if (size == 1 && l < Constants.OFFSET_SHORT_ITEM)
+            return 1;
+        return 1 + size;
+    }
+
+    // size written by writeBytes
+    static int bytesSize(byte[] bytes) {
+        if (bytes == null)
+            return 1;
+        return bytesSize(bytes, 0, bytes.length);
+    }
+
+    static int bytesSize(byte[] bytes, int offset, int size) {
+        if (size == 0)
+            return 1;
+        if (size == 1 && (bytes[offset] & 0xff) < Constants.OFFSET_SHORT_ITEM)
+            return 1;
+        return prefixSize(size) + size;
+    }
+
     static void encode(Object o, DataOutput out) {
-        try (AbstractBuffer buf = new UnsafeBuf(DEFAULT_INITIAL_CAP)) {
+        if (Rlp.useTwoPassEncoding) {
+            encodeExact(o, out);
+            return;
+        }
+        int[] last = LAST_ENCODED_SIZE.get();
+        UnsafeBuf buf = BufferPool.acquire(sizeHint(o, last[0]));
+        try {
             writeObject(buf, o);
+            last[0] = buf.getSize();
             buf.intoStream(out);
+        } finally {
+            BufferPool.release(buf);
         }
     }
 
+    // size of encoding without writing, RlpWritable.encodedSize is used if known
+    static int encodedLength(Object o) {
+        SizeBuf buf = new SizeBuf(false);
+        writeObject(buf, o);
+        return buf.checkedSize();
+    }
+
+    @SneakyThrows
+    static void encodeExact(Object o, DataOutput out) {
+        out.write(encodeExact(o));
+    }
+
     static int writeLong(AbstractBuffer buf, long l) {
         if (l == 0)
             return writeNull(buf);
@@ -49,9 +216,7 @@ final class RlpWriter {
         int leadingZeroBytes = Long.numberOfLeadingZeros(l) / Byte.SIZE;
         int size = 8 - leadingZeroBytes;
         int prefixSize = writePrefix(buf, size, Long.compareUnsigned(l, Integer.toUnsignedLong(Constants.OFFSET_SHORT_ITEM)) < 0, false);
-        for (int i = 0; i < size; i++) {
-            buf.write((byte) (l >>> (8 * (size - i - 1))));
-        }
+        buf.putLong(l, size);
         return prefixSize + size;
     }
 
@@ -68,12 +233,16 @@ final class RlpWriter {
         if (size == 1 && bytes[offset] == 1)
             return writeOne(buf);
         int prefixSize = writePrefix(buf, size, size == 1 && Integer.compareUnsigned(bytes[offset] & 0xff, Constants.OFFSET_SHORT_ITEM) < 0, false);
-        for (int i = 0; i < size; i++) {
-            buf.write(bytes[i + offset]);
-        }
+        buf.write(bytes, offset, size);
         return prefixSize + size;
     }
 
+    static int writeString(AbstractBuffer buf, String s) {
+        if (buf instanceof SizeBuf)
+            return ((SizeBuf) buf).countString(s);
+        return writeBytes(buf, s.getBytes(StandardCharsets.UTF_8));
+    }
+
     // true or false, 1 and 0 is frequently used
     static int writeOne(AbstractBuffer buf) {
         buf.write((byte) 0x01);
@@ -98,6 +267,8 @@ final class RlpWriter {
             throw new RlpEncodeException("unexpected negative big integer");
         if (bn.equals(BigInteger.ONE))
             return writeOne(buf);
+        if (buf instanceof SizeBuf)
+            return ((SizeBuf) buf).countBigInteger(bn);
         byte[] bytes = bn.toByteArray();
 
         if (bytes[0] == 0) {
@@ -107,8 +278,7 @@ final class RlpWriter {
     }
 
     static int writeRaw(AbstractBuffer buf, byte[] bytes) {
-        for (int i = 0; i < bytes.length; i++)
-            buf.write(bytes[i]);
+        buf.write(bytes, 0, bytes.length);
         return bytes.length;
     }
 
@@ -124,11 +294,20 @@ final class RlpWriter {
         return size + buf.writeListPrefix(size);
     }
 
-    @SneakyThrows
     static int writeObject(AbstractBuffer buf, Object o) {
+        if (Rlp.useIterativeTraversal)
+            return IterativeCodec.write(buf, o);
+        return writeValue(buf, o);
+    }
+
+    // write by recursion of java calls, nested values are written by writeObject
+    @SneakyThrows
+    static int writeValue(AbstractBuffer buf, Object o) {
         if (o == null)
             return writeNull(buf);
         if (o instanceof RlpWritable) {
+            if (buf instanceof SizeBuf)
+                return ((SizeBuf) buf).countWritable((RlpWritable) o);
             return ((RlpWritable) o).writeToBuf(buf);
         }
         if (o instanceof byte[]) {
@@ -159,21 +338,10 @@ final class RlpWriter {
             return writeBigInteger(buf, b);
         }
         if (o instanceof String) {
-            String s = (String) o;
-            return writeBytes(buf, s.getBytes(StandardCharsets.UTF_8));
+            return writeString(buf, (String) o);
         }
         if (o.getClass().isArray()) {
-            if (Array.getLength(o) == 0)
-                return writeEmptyList(buf);
-            // write empty prefix
-
-            buf.allocateListPrefix();
-            int size = 0;
-            for (int i = 0; i < Array.getLength(o); i++) {
-                Object oi = Array.get(o, i);
-                size += writeObject(buf, oi);
-            }
-            return size + buf.writeListPrefix(size);
+            return writeArray(buf, o);
         }
         if (o instanceof Collection) {
             Collection<?> col = (Collection<?>) o;
@@ -190,11 +358,114 @@ final class RlpWriter {
         return w.writeToBuf(buf, o);
     }
 
-    @SneakyThrows
+    // primitive arrays are written without boxing elements
+    static int writeArray(AbstractBuffer buf, Object o) {
+        if (o instanceof Object[])
+            return writeObjects(buf, (Object[]) o);
+        if (o instanceof long[])
+            return writeLongs(buf, (long[]) o);
+        if (o instanceof int[])
+            return writeInts(buf, (int[]) o);
+        if (o instanceof short[])
+            return writeShorts(buf, (short[]) o);
+        if (o instanceof boolean[])
+            return writeBooleans(buf, (boolean[]) o);
+
+        if (Array.getLength(o) == 0)
+            return writeEmptyList(buf);
+        // write empty prefix
+
+        buf.allocateListPrefix();
+        int size = 0;
+        for (int i = 0; i < Array.getLength(o); i++) {
+            Object oi = Array.get(o, i);
+            size += writeObject(buf, oi);
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
+    static int writeObjects(AbstractBuffer buf, Object[] objects) {
+        if (objects.length == 0)
+            return writeEmptyList(buf);
+        buf.allocateListPrefix();
+        int size = 0;
+        if (objects instanceof byte[][]) {
+            for (Object bytes : objects) {
+                size += writeBytes(buf, (byte[]) bytes);
+            }
+        } else {
+            for (Object object : objects) {
+                size += writeObject(buf, object);
+            }
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
+    static int writeLongs(AbstractBuffer buf, long[] longs) {
+        if (longs.length == 0)
+            return writeEmptyList(buf);
+        buf.allocateListPrefix();
+        int size = 0;
+        for (long l : longs) {
+            size += writeLong(buf, l);
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
+    static int writeInts(AbstractBuffer buf, int[] ints) {
+        if (ints.length == 0)
+            return writeEmptyList(buf);
+        buf.allocateListPrefix();
+        int size = 0;
+        for (int i : ints) {
+            size += writeLong(buf, Integer.toUnsignedLong(i));
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
+    static int writeShorts(AbstractBuffer buf, short[] shorts) {
+        if (shorts.length == 0)
+            return writeEmptyList(buf);
+        buf.allocateListPrefix();
+        int size = 0;
+        for (short s : shorts) {
+            size += writeLong(buf, Short.toUnsignedLong(s));
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
+    static int writeBooleans(AbstractBuffer buf, boolean[] booleans) {
+        if (booleans.length == 0)
+            return writeEmptyList(buf);
+        buf.allocateListPrefix();
+        int size = 0;
+        for (boolean b : booleans) {
+            size += b ? writeOne(buf) : writeNull(buf);
+        }
+        return size + buf.writeListPrefix(size);
+    }
+
     static ObjectWriter getWriter(Class<?> clazz) {
-        ObjectWriter w = OBJECT_WRITERS.get(clazz);
+        ObjectWriter w = Codecs.writer(clazz);
         if (w != null)
             return w;
+        w = resolveWriter(clazz);
+        if (w == null)
+            throw new RlpEncodeException(clazz + " is not annotated with RlpProps");
+        return w;
+    }
+
+    // find writer of class by annotations, the writer is cached in registry
+    // return null if the class is not annotated
+    static ObjectWriter resolveWriter(Class<?> clazz) {
+        ObjectWriter w = createWriter(clazz);
+        return w == null ? null : Codecs.putWriterIfAbsent(clazz, w);
+    }
+
+    // writer of class by annotations, not cached
+    @SneakyThrows
+    static ObjectWriter createWriter(Class<?> clazz) {
+        ObjectWriter w;
         for (Method method : clazz.getMethods()) {
             if (method.isAnnotationPresent(com.github.salpadding.rlpstream.annotation.RlpWriter.class)) {
                 if (!Modifier.isStatic(method.getModifiers())) {
@@ -209,16 +480,15 @@ final class RlpWriter {
                     throw new RlpEncodeException(
                             String.format("RlpWriter of class %s method should be int %s(%s obj, %s buf)", clazz.getName(), method.getName(), clazz.getName(), "RlpBuffer")
                     );
-                w = new StaticMethodWriter(method);
-                Map<Class<?>, ObjectWriter> ws = new HashMap<>(OBJECT_WRITERS);
-                ws.put(clazz, w);
-                OBJECT_WRITERS = ws;
+                w = Rlp.useGeneratedCodecs ? CodecGenerator.staticMethodWriter(method) : null;
+                if (w == null)
+                    w = new StaticMethodWriter(method);
                 return w;
             }
         }
 
         if (!clazz.isAnnotationPresent(RlpProps.class))
-            throw new RlpEncodeException(clazz + " is not annotated with RlpProps");
+            return null;
         String[] fieldNames = clazz.getAnnotation(RlpProps.class).value();
         Method[] getters = new Method[fieldNames.length];
         Field[] fields = new Field[fieldNames.length];
@@ -240,14 +510,20 @@ final class RlpWriter {
             field.setAccessible(true);
             fields[i] = field;
         }
-        w = new FieldsWriter(getters, fields);
-        Map<Class<?>, ObjectWriter> ws = new HashMap<>(OBJECT_WRITERS);
-        ws.put(clazz, w);
-        OBJECT_WRITERS = ws;
+        w = Rlp.useGeneratedCodecs ? CodecGenerator.fieldsWriter(getters, fields) : null;
+        if (w == null)
+            w = new FieldsWriter(getters, fields);
         return w;
     }
 
 
+    // size of prefix written by writePrefix(buf, size, false, isList)
+    static int prefixSize(int size) {
+        if (size < Constants.SIZE_THRESHOLD)
+            return 1;
+        return 1 + (Integer.SIZE - Integer.numberOfLeadingZeros(size) + 7) / 8;
+    }
+
     static int writePrefix(AbstractBuffer buf, int size, boolean mono, boolean isList) {
         if (mono) {
             return 0;
@@ -276,10 +552,7 @@ final class RlpWriter {
         }
 
         buf.write((byte) (base1 + lengthOfLength));
-
-        for (int i = 0; i < lengthOfLength; i++) {
-            buf.write((byte) (size >>> (8 * (lengthOfLength - i - 1))));
-        }
+        buf.putLong(size, lengthOfLength);
         return 1 + lengthOfLength;
     }
 }
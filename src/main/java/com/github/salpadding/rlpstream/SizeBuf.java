@@ -0,0 +1,141 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpEncodeException;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static com.github.salpadding.rlpstream.RlpWriter.prefixSize;
+
+// bytes are counted but not stored
+// if record is set, as the first pass of two pass encoding, body sizes of lists are recorded in the order their prefixes are allocated,
+// so the second pass could write prefixes in place
+// size is counted in long, so encodings over 2GB are reported by checkedSize instead of overflowing
+final class SizeBuf extends AbstractBuffer {
+    @Getter
+    private long size;
+
+    private final boolean record;
+
+    // body size of lists in pre-order
+    private int[] sizes;
+    private int lists;
+
+    // indices and body offsets of lists not closed yet
+    private int[] open;
+    private long[] starts;
+    private int depth;
+
+    SizeBuf(boolean record) {
+        this.record = record;
+        if (record) {
+            this.sizes = new int[16];
+            this.open = new int[16];
+            this.starts = new long[16];
+        }
+    }
+
+    // size of encoding, throws if it doesn't fit in a byte array
+    int checkedSize() {
+        if (size > Integer.MAX_VALUE)
+            throw new RlpEncodeException("encoded size " + size + " exceeds 2GB");
+        return (int) size;
+    }
+
+    @Override
+    void write(byte b) {
+        size++;
+    }
+
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        this.size += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        this.size += width;
+    }
+
+    @Override
+    void ensureCapacity(int n) {
+    }
+
+    @Override
+    public void allocateListPrefix() {
+        if (!record)
+            return;
+        if (lists == sizes.length)
+            sizes = Arrays.copyOf(sizes, lists * 2);
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, depth * 2);
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth] = this.size;
+        open[depth++] = lists++;
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        if (record) {
+            if (depth == 0)
+                throw new UnsupportedOperationException("no list prefix allocated");
+            // body size counted here, size summed by writer overflows silently
+            long body = this.size - starts[--depth];
+            if (body > Integer.MAX_VALUE)
+                throw new RlpEncodeException("rlp list body of " + body + " bytes exceeds 2GB");
+            size = (int) body;
+            sizes[open[depth]] = size;
+        }
+        int prefixSize = prefixSize(size);
+        this.size += prefixSize;
+        return prefixSize;
+    }
+
+    ListSizes getSizes() {
+        return new ListSizes(sizes, lists);
+    }
+
+    // lists inside writable are not visible if encodedSize is used, so only in size only mode
+    int countWritable(RlpWritable w) {
+        int n = record ? -1 : w.encodedSize();
+        if (n < 0)
+            return w.writeToBuf(this);
+        this.size += n;
+        return n;
+    }
+
+    // count utf8 bytes instead of encoding the string
+    int countString(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // malformed surrogate is replaced by '?'
+                n++;
+            } else {
+                n += 3;
+            }
+        }
+        // single ascii byte has no prefix
+        int r = n <= 1 ? 1 : prefixSize(n) + n;
+        this.size += r;
+        return r;
+    }
+
+    // positive big integer other than one
+    int countBigInteger(BigInteger bn) {
+        int n = (bn.bitLength() + 7) / 8;
+        int r = n == 1 && bn.intValue() < Constants.OFFSET_SHORT_ITEM ? 1 : prefixSize(n) + n;
+        this.size += r;
+        return r;
+    }
+}
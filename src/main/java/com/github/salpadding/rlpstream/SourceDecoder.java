@@ -0,0 +1,79 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+
+// decode builtin leaf values straight from RlpSource, e.g. direct buffers, without copying the whole input into heap
+// nested lists are expanded by IterativeCodec, which calls here for values without nested lists
+final class SourceDecoder {
+    private SourceDecoder() {
+    }
+
+    // numbers, strings, byte arrays, primitive arrays and byte[][]
+    @SuppressWarnings("unchecked")
+    static <T> T decodeLeaf(RlpSource src, long rawOffset, long header, Class<T> clazz) {
+        if (clazz == boolean.class || clazz == Boolean.class)
+            return (T) Boolean.valueOf(asNumber(src, rawOffset, header, 1L, "boolean") != 0);
+        if (clazz == Byte.class || clazz == byte.class)
+            return (T) Byte.valueOf((byte) asNumber(src, rawOffset, header, 0xffL, "byte"));
+        if (clazz == Short.class || clazz == short.class)
+            return (T) Short.valueOf((short) asNumber(src, rawOffset, header, 0xffffL, "short"));
+        if (clazz == Integer.class || clazz == int.class)
+            return (T) Integer.valueOf((int) asNumber(src, rawOffset, header, 0xffffffffL, "integer"));
+        if (clazz == Long.class || clazz == long.class)
+            return (T) Long.valueOf(SourceStreamId.asLong(src, rawOffset, header));
+        if (clazz == byte[].class)
+            return (T) SourceStreamId.asBytes(src, rawOffset, header);
+        if (clazz == RlpBytes.class) {
+            byte[] bytes = SourceStreamId.asBytes(src, rawOffset, header);
+            return (T) (bytes.length == 0 ? RlpBytes.EMPTY : RlpBytes.wrap(bytes));
+        }
+        if (clazz == String.class)
+            return (T) SourceStreamId.asString(src, rawOffset, header);
+        if (clazz == BigInteger.class)
+            return (T) SourceStreamId.asBigInteger(src, rawOffset, header);
+
+        if (clazz.isArray()) {
+            Class<?> elementType = clazz.getComponentType();
+            if (!SourceStreamId.isList(header) && SourceStreamId.sizeOf(header) == 0)
+                return null;
+            if (!SourceStreamId.isList(header))
+                throw new RlpDecodeException("rlp list expected when decode as " + elementType + "[]");
+            long count = SourceStreamId.countChildren(src, rawOffset, header);
+            if (count > SourceStreamId.MAX_ARRAY_SIZE)
+                throw new RlpDecodeException("rlp list of " + count + " children exceeds max array size");
+            Object res = Array.newInstance(elementType, (int) count);
+            long end = SourceStreamId.endOf(rawOffset, header);
+            long p = SourceStreamId.contentOffsetOf(rawOffset, header);
+            for (int i = 0; p < end; i++) {
+                long h = SourceStreamId.decodeElement(src, p, end, false);
+                Array.set(res, i, decodeLeaf(src, p, h, elementType));
+                p = SourceStreamId.endOf(p, h);
+            }
+            return (T) res;
+        }
+        throw new RlpDecodeException("decode failed");
+    }
+
+    // long, int, short, byte and boolean widened to long, range checked as decodeLeaf
+    static long asPrimitive(RlpSource src, long rawOffset, long header, Class<?> clazz) {
+        if (clazz == boolean.class)
+            return asNumber(src, rawOffset, header, 1L, "boolean");
+        if (clazz == byte.class)
+            return (byte) asNumber(src, rawOffset, header, 0xffL, "byte");
+        if (clazz == short.class)
+            return (short) asNumber(src, rawOffset, header, 0xffffL, "short");
+        if (clazz == int.class)
+            return (int) asNumber(src, rawOffset, header, 0xffffffffL, "integer");
+        return SourceStreamId.asLong(src, rawOffset, header);
+    }
+
+    private static long asNumber(RlpSource src, long rawOffset, long header, long max, String type) {
+        long l = SourceStreamId.asLong(src, rawOffset, header);
+        if (Long.compareUnsigned(l, max) > 0)
+            throw SourceStreamId.error("number too big, not a " + type, RlpError.NUMERIC_OVERFLOW, SourceStreamId.contentOffsetOf(rawOffset, header));
+        return l;
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// RlpList over RlpSource with long offsets, children are indexed on demand
+// safe to share across threads as RlpList, lazily built index is published by volatile writes
+public final class SourceRlpList {
+    private final RlpSource src;
+    private final long rawOffset;
+    private final long header;
+    private final long end;
+
+    // raw offsets and headers of children indexed so far, children are indexed on demand up to the highest index requested
+    private volatile Index index;
+    // -1 if not counted yet
+    private volatile int size = -1;
+
+    // offsets[0, count) and headers[0, count) are never changed once published, slots after count may be filled by a later index
+    // threads racing to fill a slot write the same offset and header
+    private static final class Index {
+        private final long[] offsets;
+        private final long[] headers;
+        private final int count;
+
+        private Index(long[] offsets, long[] headers, int count) {
+            this.offsets = offsets;
+            this.headers = headers;
+            this.count = count;
+        }
+    }
+
+    public SourceRlpList(RlpSource src, long rawOffset, long header) {
+        if (!SourceStreamId.isList(header))
+            throw new RlpDecodeException("not a rlp list", RlpError.NOT_A_LIST, rawOffset <= Integer.MAX_VALUE ? (int) rawOffset : -1);
+        this.src = src;
+        this.rawOffset = rawOffset;
+        this.header = header;
+        this.end = SourceStreamId.endOf(rawOffset, header);
+    }
+
+    // the whole source as one list
+    public SourceRlpList(RlpSource src) {
+        this(src, 0, SourceStreamId.decodeElement(src));
+    }
+
+    private long nextOffset(Index current) {
+        int count = current == null ? 0 : current.count;
+        return count == 0 ? SourceStreamId.contentOffsetOf(rawOffset, header) : SourceStreamId.endOf(current.offsets[count - 1], current.headers[count - 1]);
+    }
+
+    // index with child idx indexed
+    private Index index(int idx) {
+        Index current = this.index;
+        int count = current == null ? 0 : current.count;
+        if (idx < count)
+            return current;
+        int size = this.size;
+        if (idx < 0 || (size >= 0 && idx >= size))
+            throw new RlpDecodeException("array index overflow");
+        long[] offsets = current == null ? null : current.offsets;
+        long[] headers = current == null ? null : current.headers;
+        if (offsets == null || offsets.length <= idx) {
+            int cap = Math.max(size >= 0 ? size : Math.max(8, count * 2), idx + 1);
+            offsets = count == 0 ? new long[cap] : Arrays.copyOf(offsets, cap);
+            headers = count == 0 ? new long[cap] : Arrays.copyOf(headers, cap);
+        }
+        long p = nextOffset(current);
+        while (count <= idx) {
+            if (p >= end) {
+                this.size = count;
+                throw new RlpDecodeException("array index overflow");
+            }
+            long h = SourceStreamId.decodeElement(src, p, end, false);
+            headers[count] = h;
+            offsets[count++] = p;
+            p = SourceStreamId.endOf(p, h);
+        }
+        Index r = new Index(offsets, headers, count);
+        this.index = r;
+        return r;
+    }
+
+    // children are counted from the last indexed one without being indexed
+    public int size() {
+        int size = this.size;
+        if (size >= 0)
+            return size;
+        Index current = this.index;
+        long count = current == null ? 0 : current.count;
+        long p = nextOffset(current);
+        while (p < end) {
+            p = SourceStreamId.endOf(p, SourceStreamId.decodeElement(src, p, end, false));
+            count++;
+        }
+        if (count > Integer.MAX_VALUE)
+            throw new RlpDecodeException("rlp list has more than " + Integer.MAX_VALUE + " children");
+        this.size = (int) count;
+        return (int) count;
+    }
+
+    public RlpSource getSource() {
+        return src;
+    }
+
+    public long getOffset() {
+        return rawOffset;
+    }
+
+    public long getHeader() {
+        return header;
+    }
+
+    // raw offset of child, use with SourceStreamId
+    public long offsetAt(int idx) {
+        return index(idx).offsets[idx];
+    }
+
+    public long headerAt(int idx) {
+        return index(idx).headers[idx];
+    }
+
+    public boolean isListAt(int idx) {
+        return SourceStreamId.isList(index(idx).headers[idx]);
+    }
+
+    public SourceRlpList listAt(int idx) {
+        Index current = index(idx);
+        return new SourceRlpList(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public byte[] rawAt(int idx) {
+        Index current = index(idx);
+        return SourceStreamId.rawOf(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public byte[] bytesAt(int idx) {
+        Index current = index(idx);
+        return SourceStreamId.asBytes(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public <T> T valueAt(int idx, Class<T> clazz) {
+        Index current = index(idx);
+        return SourceStreamId.decode(src, current.offsets[idx], current.headers[idx], clazz);
+    }
+
+    public long longAt(int idx) {
+        Index current = index(idx);
+        return SourceStreamId.asLong(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public int intAt(int idx) {
+        long l = longAt(idx);
+        if (Long.compareUnsigned(l, 0xffffffffL) > 0)
+            throw new RlpDecodeException("number too big, not a integer");
+        return (int) l;
+    }
+
+    public String stringAt(int idx) {
+        Index current = index(idx);
+        return SourceStreamId.asString(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public BigInteger bigIntAt(int idx) {
+        Index current = index(idx);
+        return SourceStreamId.asBigInteger(src, current.offsets[idx], current.headers[idx]);
+    }
+
+    public <T> T as(Class<T> clazz) {
+        return SourceStreamId.decode(src, rawOffset, header, clazz);
+    }
+}
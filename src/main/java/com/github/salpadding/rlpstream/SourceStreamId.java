@@ -0,0 +1,315 @@
+package com.github.salpadding.rlpstream;
+
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// navigate rlp elements of RlpSource by long offsets, for inputs exceed the 2GB limit of StreamId
+// an element is identified by two longs: offset of its first prefix byte and a header
+// header = LIST SIGN | prefix size << 56 | content size, EOF(-1) if no more element
+// typed values of byte array and heap buffer sources are decoded by the compact StreamId path,
+// values of direct buffer sources and elements straddling segments are decoded from the source by IterativeCodec,
+// elements inside one segment of a segmented source are decoded by that segment
+//
+// long end = SourceStreamId.endOf(listOffset, listHeader);
+// for (long p = SourceStreamId.contentOffsetOf(listOffset, listHeader); p < end; ) {
+//     long h = SourceStreamId.decodeElement(src, p, end, false);
+//     ...
+//     p = SourceStreamId.endOf(p, h);
+// }
+public final class SourceStreamId {
+    private SourceStreamId() {
+    }
+
+    public static final long EOF = -1;
+
+    static final long LIST_SIGN = 1L << 63;
+    static final long SIZE_MASK = (1L << 56) - 1;
+    // content larger than this is not copied into byte array
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    public static boolean isList(long header) {
+        return header < 0;
+    }
+
+    public static boolean isEOF(long header) {
+        return header == EOF;
+    }
+
+    public static long sizeOf(long header) {
+        return header & SIZE_MASK;
+    }
+
+    public static int prefixSizeOf(long header) {
+        return (int) ((header >>> 56) & 0x0f);
+    }
+
+    public static long contentOffsetOf(long rawOffset, long header) {
+        return rawOffset + prefixSizeOf(header);
+    }
+
+    // offset right after the element
+    public static long endOf(long rawOffset, long header) {
+        return rawOffset + prefixSizeOf(header) + sizeOf(header);
+    }
+
+    private static long header(boolean isList, int prefixSize, long size) {
+        return (isList ? LIST_SIGN : 0) | ((long) prefixSize << 56) | size;
+    }
+
+    private static RlpDecodeException error(int code, long rawOffset) {
+        return error(RlpError.messageOf(code) + " at " + rawOffset, code, rawOffset);
+    }
+
+    // offsets beyond 2GB are reported as -1
+    static RlpDecodeException error(String message, int code, long offset) {
+        return new RlpDecodeException(message, code, offset <= Integer.MAX_VALUE ? (int) offset : -1);
+    }
+
+    // header of element starts at rawOffset, the element should end before rawLimit, or at rawLimit if full
+    // same canonical checks as StreamId.decodeElement
+    public static long decodeElement(RlpSource src, long rawOffset, long rawLimit, boolean full) {
+        long r = parseElement(src, rawOffset, rawLimit, full);
+        if (isParseError(r))
+            throw error((int) (r & ~PARSE_ERROR), rawOffset);
+        return r;
+    }
+
+    // headers never have this bit set, prefix size takes 4 bits only
+    private static final long PARSE_ERROR = 1L << 62;
+
+    private static boolean isParseError(long r) {
+        return (r & (LIST_SIGN | PARSE_ERROR)) == PARSE_ERROR;
+    }
+
+    // same as decodeElement, but return PARSE_ERROR | RlpError code instead of throwing
+    private static long parseElement(RlpSource src, long rawOffset, long rawLimit, boolean full) {
+        if (rawLimit <= rawOffset)
+            return PARSE_ERROR | RlpError.EMPTY;
+        int prefix = src.get(rawOffset) & 0xff;
+        long end;
+        long r;
+
+        if (prefix < Constants.OFFSET_SHORT_ITEM) {
+            end = rawOffset + 1;
+            r = header(false, 0, 1);
+        } else if (prefix <= Constants.OFFSET_LONG_ITEM) {
+            int length = prefix - Constants.OFFSET_SHORT_ITEM;
+            end = rawOffset + 1 + length;
+            if (end > rawLimit)
+                return PARSE_ERROR | RlpError.OUT_OF_BOUNDS;
+            if (length == 1 && (src.get(rawOffset + 1) & 0xff) < Constants.OFFSET_SHORT_ITEM)
+                return PARSE_ERROR | RlpError.NON_CANONICAL_SHORT_ITEM;
+            r = header(false, 1, length);
+        } else if (prefix >= Constants.OFFSET_SHORT_LIST && prefix <= Constants.OFFSET_LONG_LIST) {
+            int length = prefix - Constants.OFFSET_SHORT_LIST;
+            end = rawOffset + 1 + length;
+            r = header(true, 1, length);
+        } else {
+            boolean isList = prefix > Constants.OFFSET_LONG_LIST;
+            int lengthBits = prefix - (isList ? Constants.OFFSET_LONG_LIST : Constants.OFFSET_LONG_ITEM);
+            if (rawOffset + 1 + lengthBits > rawLimit)
+                return PARSE_ERROR | RlpError.OUT_OF_BOUNDS;
+            if (src.get(rawOffset + 1) == 0)
+                return PARSE_ERROR | RlpError.LEADING_ZERO_LENGTH;
+            long length = 0;
+            for (int i = 0; i < lengthBits; i++)
+                length = (length << 8) | (src.get(rawOffset + 1 + i) & 0xffL);
+            if ((length & ~SIZE_MASK) != 0)
+                return PARSE_ERROR | RlpError.SIZE_OVERFLOW;
+            if (length < Constants.SIZE_THRESHOLD)
+                return PARSE_ERROR | (isList ? RlpError.NON_CANONICAL_LONG_LIST : RlpError.NON_CANONICAL_LONG_ITEM);
+            end = rawOffset + 1 + lengthBits + length;
+            r = header(isList, 1 + lengthBits, length);
+        }
+        if (end > rawLimit)
+            return PARSE_ERROR | RlpError.OUT_OF_BOUNDS;
+        if (full && end != rawLimit)
+            return PARSE_ERROR | RlpError.TRAILING_BYTES;
+        return r;
+    }
+
+    // stack of list limits used by validate, reused by thread
+    private static final int MAX_RETAINED_STACK = 4096;
+    private static final ThreadLocal<long[]> VALIDATE_STACK = ThreadLocal.withInitial(() -> new long[16]);
+
+    // same as RlpStream.validate, but the source is read in place, e.g. direct buffers are not copied into heap
+    // return RlpError.OK or packed error, offsets beyond 2GB are reported as -1
+    static long validate(RlpSource src, RlpDecodeOptions options) {
+        int maxDepth = options.getMaxDepth();
+        int maxElements = options.getMaxElements();
+        int maxItemSize = options.getMaxItemSize();
+        long maxAllocation = options.getMaxAllocation();
+
+        long root = parseElement(src, 0, src.size(), true);
+        if (isParseError(root))
+            return packedError((int) (root & ~PARSE_ERROR), 0);
+        if (maxElements < 1)
+            return packedError(RlpError.TOO_MANY_ELEMENTS, 0);
+        if (!isList(root)) {
+            if (sizeOf(root) > maxItemSize)
+                return packedError(RlpError.ITEM_TOO_LARGE, 0);
+            if (RlpDecodeOptions.ELEMENT_OVERHEAD + sizeOf(root) > maxAllocation)
+                return packedError(RlpError.ALLOCATION_EXCEEDED, 0);
+            return RlpError.OK;
+        }
+        if (maxDepth < 1)
+            return packedError(RlpError.DEPTH_EXCEEDED, 0);
+
+        long[] stack = VALIDATE_STACK.get();
+        // number of open lists, limits of enclosing lists are at stack[0, depth - 1)
+        int depth = 1;
+        int count = 1;
+        long allocation = RlpDecodeOptions.ELEMENT_OVERHEAD;
+        long pos = contentOffsetOf(0, root);
+        long end = endOf(0, root);
+        while (true) {
+            if (pos == end) {
+                if (depth == 1)
+                    return allocation > maxAllocation ? packedError(RlpError.ALLOCATION_EXCEEDED, 0) : RlpError.OK;
+                end = stack[--depth - 1];
+                continue;
+            }
+            long e = parseElement(src, pos, end, false);
+            if (isParseError(e))
+                return packedError((int) (e & ~PARSE_ERROR), pos);
+            if (++count > maxElements)
+                return packedError(RlpError.TOO_MANY_ELEMENTS, pos);
+            long size = sizeOf(e);
+            long next = endOf(pos, e);
+            if (isList(e)) {
+                if (depth == maxDepth)
+                    return packedError(RlpError.DEPTH_EXCEEDED, pos);
+                allocation += RlpDecodeOptions.ELEMENT_OVERHEAD;
+                // descend, remember limit of current list
+                if (depth > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    // deep stacks of hostile input are not retained by thread
+                    if (stack.length <= MAX_RETAINED_STACK)
+                        VALIDATE_STACK.set(stack);
+                }
+                stack[depth++ - 1] = end;
+                end = next;
+                pos = contentOffsetOf(pos, e);
+            } else {
+                if (size > maxItemSize)
+                    return packedError(RlpError.ITEM_TOO_LARGE, pos);
+                allocation += RlpDecodeOptions.ELEMENT_OVERHEAD + size;
+                if (allocation > maxAllocation)
+                    return packedError(RlpError.ALLOCATION_EXCEEDED, pos);
+                pos = next;
+            }
+        }
+    }
+
+    private static long packedError(int code, long offset) {
+        return RlpError.error(code, offset <= Integer.MAX_VALUE ? (int) offset : -1);
+    }
+
+    // header of the whole source as one element
+    public static long decodeElement(RlpSource src) {
+        return decodeElement(src, 0, src.size(), true);
+    }
+
+    // raw offset of index-th child of list, EOF if list has fewer children
+    public static long childAt(RlpSource src, long rawOffset, long header, long index) {
+        if (!isList(header))
+            throw new RlpDecodeException("rlp list expected at path");
+        long end = endOf(rawOffset, header);
+        long p = contentOffsetOf(rawOffset, header);
+        for (long i = 0; p < end; i++) {
+            if (i == index)
+                return p;
+            p = endOf(p, decodeElement(src, p, end, false));
+        }
+        return EOF;
+    }
+
+    public static long countChildren(RlpSource src, long rawOffset, long header) {
+        if (!isList(header))
+            throw new RlpDecodeException("not a rlp list");
+        long end = endOf(rawOffset, header);
+        long p = contentOffsetOf(rawOffset, header);
+        long count = 0;
+        while (p < end) {
+            p = endOf(p, decodeElement(src, p, end, false));
+            count++;
+        }
+        return count;
+    }
+
+    public static byte[] asBytes(RlpSource src, long rawOffset, long header) {
+        if (isList(header))
+            throw error("not a rlp item", RlpError.NOT_AN_ITEM, contentOffsetOf(rawOffset, header));
+        long size = sizeOf(header);
+        if (size > MAX_ARRAY_SIZE)
+            throw new RlpDecodeException("rlp item of " + size + " bytes exceeds max array size");
+        byte[] r = new byte[(int) size];
+        src.get(contentOffsetOf(rawOffset, header), r, 0, r.length);
+        return r;
+    }
+
+    // copy of whole element including prefix
+    public static byte[] rawOf(RlpSource src, long rawOffset, long header) {
+        long size = prefixSizeOf(header) + sizeOf(header);
+        if (size > MAX_ARRAY_SIZE)
+            throw new RlpDecodeException("rlp element of " + size + " bytes exceeds max array size");
+        byte[] r = new byte[(int) size];
+        src.get(rawOffset, r, 0, r.length);
+        return r;
+    }
+
+    public static long asLong(RlpSource src, long rawOffset, long header) {
+        long offset = contentOffsetOf(rawOffset, header);
+        if (isList(header))
+            throw error("not a rlp item", RlpError.NOT_AN_ITEM, offset);
+        long size = sizeOf(header);
+        if (size > 8)
+            throw error("number too big, cannot convert to long", RlpError.NUMERIC_OVERFLOW, offset);
+        long start = offset;
+        if (src instanceof BufferSource) {
+            BufferSource bs = (BufferSource) src;
+            int s = bs.segmentOf(offset, size);
+            if (s >= 0) {
+                src = bs.part(s);
+                offset -= bs.startOf(s);
+            }
+        }
+        if (size > 0 && src.get(offset) == 0)
+            throw error("leading zero found", RlpError.LEADING_ZERO_NUMBER, start);
+        long r = 0;
+        for (int i = 0; i < size; i++)
+            r = (r << 8) | (src.get(offset + i) & 0xffL);
+        return r;
+    }
+
+    public static BigInteger asBigInteger(RlpSource src, long rawOffset, long header) {
+        byte[] bytes = asBytes(src, rawOffset, header);
+        if (bytes.length == 0)
+            return BigInteger.ZERO;
+        if (bytes[0] == 0)
+            throw error("leading zero found", RlpError.LEADING_ZERO_NUMBER, contentOffsetOf(rawOffset, header));
+        return new BigInteger(1, bytes);
+    }
+
+    public static String asString(RlpSource src, long rawOffset, long header) {
+        return new String(asBytes(src, rawOffset, header), StandardCharsets.UTF_8);
+    }
+
+    // decode element as class, elements of byte array or heap buffer sources are decoded by compact stream id without copy
+    // elements of other sources are decoded from the source directly
+    public static <T> T decode(RlpSource src, long rawOffset, long header, Class<T> clazz) {
+        if (src instanceof BytesSource) {
+            BytesSource bs = (BytesSource) src;
+            long rawSize = prefixSizeOf(header) + sizeOf(header);
+            long start = bs.offset + rawOffset;
+            if (rawOffset >= 0 && rawOffset + rawSize <= bs.size()) {
+                long streamId = RlpStream.decodeElement(bs.bin, (int) start, (int) (start + rawSize), true);
+                return RlpStream.decode(bs.bin, streamId, clazz);
+            }
+        }
+        return IterativeCodec.decode(src, rawOffset, header, clazz);
+    }
+}
@@ -4,16 +4,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 
 import java.lang.reflect.Method;
-import java.util.function.BiFunction;
 
 @RequiredArgsConstructor
-final class StaticMethodDecoder<T> implements BiFunction<byte[], Long, T> {
+final class StaticMethodDecoder<T> implements RlpDecoder<T> {
     private final Method method;
 
     @Override
     @SneakyThrows
     @SuppressWarnings("unchecked")
-    public T apply(byte[] bin, Long streamId) {
+    public T decode(byte[] bin, long streamId) {
         return (T) method.invoke(null, bin, streamId);
     }
 }
@@ -0,0 +1,109 @@
+package com.github.salpadding.rlpstream;
+
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import static com.github.salpadding.rlpstream.RlpWriter.prefixSize;
+import static com.github.salpadding.rlpstream.RlpWriter.writePrefix;
+
+// second pass of two pass encoding into a stream, bytes are collected into a fixed size chunk and flushed when it is full
+// list prefixes are known from sizes recorded by SizeBuf, so they are emitted before their bodies
+// byte arrays larger than the chunk are written to the stream directly
+final class StreamBuf extends AbstractBuffer {
+    interface Sink {
+        void write(byte[] bytes, int offset, int size) throws IOException;
+    }
+
+    static Sink sink(OutputStream out) {
+        return out::write;
+    }
+
+    static Sink sink(WritableByteChannel channel) {
+        return (bytes, offset, size) -> {
+            ByteBuffer buf = ByteBuffer.wrap(bytes, offset, size);
+            while (buf.hasRemaining())
+                channel.write(buf);
+        };
+    }
+
+    private final Sink sink;
+    private final byte[] chunk;
+    private int pos;
+    // bytes flushed to sink
+    private long flushed;
+
+    private final ListSizes sizes;
+
+    StreamBuf(Sink sink, int chunkSize, ListSizes sizes) {
+        this.sink = sink;
+        this.chunk = new byte[chunkSize];
+        this.sizes = sizes;
+    }
+
+    @SneakyThrows
+    void flush() {
+        if (pos == 0)
+            return;
+        sink.write(chunk, 0, pos);
+        flushed += pos;
+        pos = 0;
+    }
+
+    @Override
+    void write(byte b) {
+        if (pos == chunk.length)
+            flush();
+        chunk[pos++] = b;
+    }
+
+    @Override
+    @SneakyThrows
+    void write(byte[] bytes, int offset, int size) {
+        if (size <= chunk.length - pos) {
+            System.arraycopy(bytes, offset, chunk, pos, size);
+            pos += size;
+            return;
+        }
+        flush();
+        if (size < chunk.length) {
+            System.arraycopy(bytes, offset, chunk, 0, size);
+            pos = size;
+            return;
+        }
+        sink.write(bytes, offset, size);
+        flushed += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        for (int i = 0; i < width; i++)
+            chunk[pos++] = (byte) (value >>> (8 * (width - i - 1)));
+    }
+
+    // n should not exceed chunk size
+    @Override
+    void ensureCapacity(int n) {
+        if (n > chunk.length - pos)
+            flush();
+    }
+
+    long written() {
+        return flushed + pos;
+    }
+
+    @Override
+    public void allocateListPrefix() {
+        writePrefix(this, sizes.open(), false, true);
+    }
+
+    @Override
+    public int writeListPrefix(int size) {
+        sizes.close(size);
+        return prefixSize(size);
+    }
+}
@@ -45,7 +45,7 @@ public final class StreamId {
 
     public static BigInteger asBigInteger(byte[] bin, long streamId) {
         if (streamId < 0)
-            throw new RlpDecodeException("not a rlp item");
+            throw new RlpDecodeException("not a rlp item", RlpError.NOT_AN_ITEM, offsetOf(streamId));
         byte[] bytes = asBytes(bin, streamId);
         if (bytes.length == 0)
             return BigInteger.ZERO;
@@ -59,7 +59,7 @@ public final class StreamId {
             }
         }
         if (firstNoZero != 0)
-            throw new RlpDecodeException("leading zero found");
+            throw new RlpDecodeException("leading zero found", RlpError.LEADING_ZERO_NUMBER, offsetOf(streamId));
         return new BigInteger(1, bytes);
     }
 
@@ -73,7 +73,7 @@ public final class StreamId {
             return 0;
 
         if (size > 8)
-            throw new RlpDecodeException("number too big, cannot convert to long");
+            throw new RlpDecodeException("number too big, cannot convert to long", RlpError.NUMERIC_OVERFLOW, offset);
 
         int firstNoZero = -1;
 
@@ -86,7 +86,7 @@ public final class StreamId {
         }
 
         if (firstNoZero != 0)
-            throw new RlpDecodeException("leading zero found");
+            throw new RlpDecodeException("leading zero found", RlpError.LEADING_ZERO_NUMBER, offset);
 
         for (int i = 0; i < size; i++) {
             long b = bin[offset + size - 1 - i] & 0xffL;
@@ -97,7 +97,7 @@ public final class StreamId {
 
     public static long asLong(byte[] bin, long streamId) {
         if (streamId < 0)
-            throw new RlpDecodeException("not a rlp item");
+            throw new RlpDecodeException("not a rlp item", RlpError.NOT_AN_ITEM, offsetOf(streamId));
         // rlp number cannot starts with zero
         int offset = offsetOf(streamId);
         int size = sizeOf(streamId);
@@ -116,35 +116,51 @@ public final class StreamId {
 
     public static byte[] asBytes(byte[] bin, long streamId) {
         if (streamId < 0)
-            throw new RlpDecodeException("not a rlp item");
+            throw new RlpDecodeException("not a rlp item", RlpError.NOT_AN_ITEM, offsetOf(streamId));
         return RlpStream.copyFrom(bin, streamId);
     }
 
+    // view of content without copy, same as asBytes
+    public static RlpBytes asRlpBytes(byte[] bin, long streamId) {
+        if (streamId < 0)
+            throw new RlpDecodeException("not a rlp item", RlpError.NOT_AN_ITEM, offsetOf(streamId));
+        int size = sizeOf(streamId);
+        if (size == 0)
+            return RlpBytes.EMPTY;
+        return RlpBytes.wrap(bin, offsetOf(streamId), size);
+    }
+
+    // view of element including prefix without copy, same as rawOf
+    public static RlpBytes rawRlpBytesOf(byte[] bin, long streamId) {
+        int prefixSize = prefixSizeOf(streamId);
+        return RlpBytes.wrap(bin, offsetOf(streamId) - prefixSize, prefixSize + sizeOf(streamId));
+    }
+
     public static int asInt(byte[] bin, long streamId) {
         long l = StreamId.asLong(bin, streamId);
         if (Long.compareUnsigned(l, 0xffffffffL) > 0)
-            throw new RlpDecodeException("number too big, not a integer");
+            throw new RlpDecodeException("number too big, not a integer", RlpError.NUMERIC_OVERFLOW, offsetOf(streamId));
         return (int) l;
     }
 
     public static short asShort(byte[] bin, long streamId) {
         long l = StreamId.asLong(bin, streamId);
         if (Long.compareUnsigned(l, 0xffffL) > 0)
-            throw new RlpDecodeException("number too big, not a short");
+            throw new RlpDecodeException("number too big, not a short", RlpError.NUMERIC_OVERFLOW, offsetOf(streamId));
         return (short) l;
     }
 
     public static byte asByte(byte[] bin, long streamId) {
         long l = StreamId.asLong(bin, streamId);
         if (Long.compareUnsigned(l, 0xffL) > 0)
-            throw new RlpDecodeException("number too big, not a byte");
+            throw new RlpDecodeException("number too big, not a byte", RlpError.NUMERIC_OVERFLOW, offsetOf(streamId));
         return (byte) l;
     }
 
     public static boolean asBoolean(byte[] bin, long streamId) {
         long l = StreamId.asLong(bin, streamId);
         if (Long.compareUnsigned(l, 1L) > 0)
-            throw new RlpDecodeException("number too big, not a boolean");
+            throw new RlpDecodeException("number too big, not a boolean", RlpError.NUMERIC_OVERFLOW, offsetOf(streamId));
         return l != 0;
     }
 
@@ -164,10 +180,27 @@ public final class StreamId {
         return RlpStream.decodeElement(bin, rawOffset, rawLimit, full);
     }
 
+    // same as decodeElement, but malformed element is reported by an error id instead of exception
+    // use RlpError.isError to check the result
+    public static long tryDecodeElement(byte[] bin, int rawOffset, int rawLimit, boolean full) {
+        return RlpStream.parseElement(bin, rawOffset, rawLimit, full);
+    }
+
     public static long iterateList(byte[] bin, long streamId, long prev) {
         return RlpStream.iterateList(bin, streamId, prev);
     }
 
+    // stream id of index-th child of list without allocation, EOF if index is out of range
+    public static long at(byte[] bin, long streamId, int index) {
+        return RlpStream.childAt(bin, streamId, index);
+    }
+
+    // stream id of element at path, e.g. at(bin, block, 1, 3, 3) for block[1][3][3], EOF if any index is out of range
+    // throws if an element on the path is not a list, use RlpPath to avoid allocation of path
+    public static long at(byte[] bin, long streamId, int... path) {
+        return RlpStream.at(bin, streamId, path);
+    }
+
     public static <T> T as(byte[] bin, long streamId, Class<T> clazz) {
         return RlpStream.decode(bin, streamId, clazz);
     }
@@ -9,7 +9,7 @@ import java.io.Closeable;
 import java.io.DataOutput;
 import java.lang.reflect.Field;
 
-final class UnsafeBuf extends AbstractBuffer implements Closeable {
+final class UnsafeBuf extends GrowableBuffer implements Closeable {
     public static Unsafe reflectGetUnsafe() {
         try {
             Field field = Unsafe.class.getDeclaredField("theUnsafe");
@@ -23,6 +23,9 @@ final class UnsafeBuf extends AbstractBuffer implements Closeable {
     private static final Unsafe unsafe = reflectGetUnsafe();
     private static final int ARRAY_OFFSET = unsafe.arrayBaseOffset(byte[].class);
 
+    // bytes copied to output stream at a time
+    private static final int STREAM_CHUNK_SIZE = 8192;
+
     private long pointer;
     private int cap;
 
@@ -30,33 +33,60 @@ final class UnsafeBuf extends AbstractBuffer implements Closeable {
     @Setter
     private int size;
 
+    // memory is not zeroed, bytes beyond size are never read
     UnsafeBuf(int cap) {
         this.pointer = unsafe.allocateMemory(cap);
-        unsafe.setMemory(pointer, cap, (byte) 0);
         this.cap = cap;
     }
 
-    private void tryExtend() {
-        if (size >= cap) {
-            int newCap = cap * 2;
-            if (newCap < 0) {
-                close();
-                throw new UnsupportedOperationException("memory overflow");
-            }
-            long newPointer = unsafe.reallocateMemory(pointer, newCap);
-            unsafe.setMemory(newPointer + cap, newCap - cap, (byte) 0);
-            this.pointer = newPointer;
-            this.cap = newCap;
+    int getCap() {
+        return cap;
+    }
+
+    boolean isClosed() {
+        return pointer == 0;
+    }
+
+    @Override
+    void ensureCapacity(int n) {
+        if (n <= cap - size)
+            return;
+        long newCap = Math.max((long) cap * 2, (long) size + n);
+        if (newCap > Integer.MAX_VALUE) {
+            close();
+            throw new UnsupportedOperationException("memory overflow");
         }
+        long newPointer = unsafe.reallocateMemory(pointer, newCap);
+        this.pointer = newPointer;
+        this.cap = (int) newCap;
     }
 
     @Override
     void write(byte b) {
-        tryExtend();
+        if (size == cap)
+            ensureCapacity(1);
         unsafe.putByte(pointer + size, b);
         this.size++;
     }
 
+    @Override
+    void write(byte[] bytes, int offset, int size) {
+        if (offset < 0 || size < 0 || offset > bytes.length - size)
+            throw new ArrayIndexOutOfBoundsException();
+        ensureCapacity(size);
+        unsafe.copyMemory(bytes, ARRAY_OFFSET + offset, null, pointer + this.size, size);
+        this.size += size;
+    }
+
+    @Override
+    void putLong(long value, int width) {
+        ensureCapacity(width);
+        long p = pointer + size;
+        for (int i = 0; i < width; i++)
+            unsafe.putByte(p + i, (byte) (value >>> (8 * (width - i - 1))));
+        this.size += width;
+    }
+
     void primitiveLeftShift(int offset, int size, int shifts) {
         long srcAddr = this.pointer + offset;
         long dstAddr = this.pointer + offset - shifts;
@@ -73,8 +103,12 @@ final class UnsafeBuf extends AbstractBuffer implements Closeable {
     @Override
     @SneakyThrows
     void intoStream(DataOutput output) {
-        for (int i = 0; i < size; i++)
-            output.write(unsafe.getByte(pointer + i) & 0xff);
+        byte[] chunk = new byte[Math.min(size, STREAM_CHUNK_SIZE)];
+        for (int i = 0; i < size; i += chunk.length) {
+            int n = Math.min(chunk.length, size - i);
+            unsafe.copyMemory(null, pointer + i, chunk, ARRAY_OFFSET, n);
+            output.write(chunk, 0, n);
+        }
     }
 
     @Override
@@ -1,10 +1,41 @@
 package com.github.salpadding.rlpstream.exceptions;
 
+import com.github.salpadding.rlpstream.RlpError;
+
 public class RlpDecodeException extends RlpException {
+    // one of RlpError codes
+    private final int code;
+    // offset in input where error found, -1 if unknown
+    private final int offset;
+
     public RlpDecodeException() {
+        this.code = RlpError.INVALID_VALUE;
+        this.offset = -1;
     }
 
     public RlpDecodeException(String message) {
         super(message);
+        this.code = RlpError.INVALID_VALUE;
+        this.offset = -1;
+    }
+
+    public RlpDecodeException(String message, int code, int offset) {
+        super(message);
+        this.code = code;
+        this.offset = offset;
+    }
+
+    // error packed as long, same as result of Rlp.validate
+    public static RlpDecodeException of(long error) {
+        int code = RlpError.codeOf(error);
+        return new RlpDecodeException(RlpError.messageOf(code), code, RlpError.offsetOf(error));
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public int getOffset() {
+        return offset;
     }
 }
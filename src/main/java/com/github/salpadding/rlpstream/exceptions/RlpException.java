@@ -1,10 +1,26 @@
 package com.github.salpadding.rlpstream.exceptions;
 
 public class RlpException extends RuntimeException {
+    private static volatile boolean stackTraceEnabled = true;
+
+    // disable stack traces of all rlp exceptions, filling stack trace dominates the cost of rejecting malformed input
+    public static void setStackTraceEnabled(boolean enabled) {
+        stackTraceEnabled = enabled;
+    }
+
+    public static boolean isStackTraceEnabled() {
+        return stackTraceEnabled;
+    }
+
     public RlpException() {
     }
 
     public RlpException(String message) {
         super(message);
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return stackTraceEnabled ? super.fillInStackTrace() : this;
+    }
 }
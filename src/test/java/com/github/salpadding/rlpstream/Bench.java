@@ -1,5 +1,7 @@
 package com.github.salpadding.rlpstream;
 
+import com.github.salpadding.rlpstream.exceptions.RlpDecodeException;
+import com.github.salpadding.rlpstream.exceptions.RlpException;
 import lombok.SneakyThrows;
 import org.apache.commons.codec.binary.Hex;
 
@@ -10,12 +12,232 @@ import org.apache.commons.codec.binary.Hex;
 public class Bench {
     public static void main(String[] args) {
         benchEncodeDecode();
+        benchGeneratedCodecs();
+        benchTwoPassEncoding();
+        benchValidate();
+        benchMalformed();
+        benchIterativeTraversal();
+        benchDirectDecode();
+        benchCompositeDecode();
+    }
+
+    // deeply nested lists, every level of single pass encoding moves the whole body once
+    public static void benchTwoPassEncoding() {
+        Object o = new byte[65536];
+        for (int i = 0; i < 64; i++)
+            o = new Object[]{(long) i, o};
+
+        int count = 10000;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            RlpWriter.encode(o);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("single pass encode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            RlpWriter.encodeExact(o);
+        }
+        end = System.currentTimeMillis();
+        System.out.println("two pass encode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+    }
+
+    // structural check of the payload in benchEncodeDecode against a full decode of it
+    @SneakyThrows
+    public static void benchValidate() {
+        byte[] bytes = Hex.decodeHex(RlpTest.POOL_DATA_HEX);
+
+        int count = 1000000;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.validate(bytes);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("validate " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.decode(bytes, RlpTest.PoolData[].class);
+        }
+        end = System.currentTimeMillis();
+        System.out.println("decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+    }
+
+    // rejecting malformed input by exception with stack trace, stackless exception and tryDecode
+    public static void benchMalformed() {
+        byte[] bytes = new byte[]{(byte) 0xc4, (byte) 0xc2, (byte) 0x81, 0, (byte) 0xc0};
+        int count = 1000000;
+        for (int round = 0; round < 2; round++) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                try {
+                    Rlp.decode(bytes, String[].class);
+                } catch (RlpDecodeException ignored) {
+                }
+            }
+            long end = System.currentTimeMillis();
+            System.out.println((round == 0 ? "throw " : "stackless throw ") + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+            Rlp.useStacklessExceptions();
+        }
+        RlpException.setStackTraceEnabled(true);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.tryDecode(bytes, String[].class);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("tryDecode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+    }
+
+    // deep: sequence nested 200 levels, wide: the pool data array of benchEncodeDecode
+    @SneakyThrows
+    public static void benchIterativeTraversal() {
+        examples.Sequence deep = new examples.Sequence("x", "y", null, new examples.Sequence[0]);
+        for (int i = 0; i < 200; i++)
+            deep = new examples.Sequence("x", "y", null, new examples.Sequence[]{deep});
+        byte[] deepBytes = RlpWriter.encodeExact(deep);
+        byte[] wideBytes = Hex.decodeHex(RlpTest.POOL_DATA_HEX);
+        RlpTest.PoolData[] wide = Rlp.decode(wideBytes, RlpTest.PoolData[].class);
+
+        for (int round = 0; round < 2; round++) {
+            String mode = round == 0 ? "recursive " : "iterative ";
+            int count = 10000;
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                RlpWriter.encodeExact(deep);
+            }
+            long end = System.currentTimeMillis();
+            System.out.println(mode + "deep encode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+            now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                Rlp.decode(deepBytes, examples.Sequence.class);
+            }
+            end = System.currentTimeMillis();
+            System.out.println(mode + "deep decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+            count = 1000000;
+            now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                RlpWriter.encode(wide);
+            }
+            end = System.currentTimeMillis();
+            System.out.println(mode + "wide encode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+            now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                Rlp.decode(wideBytes, RlpTest.PoolData[].class);
+            }
+            end = System.currentTimeMillis();
+            System.out.println(mode + "wide decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+            Rlp.useIterativeTraversal();
+        }
+        Rlp.useIterativeTraversal = false;
+    }
+
+    // pool data received in a direct buffer, copied into heap then decoded vs decoded from the buffer
+    @SneakyThrows
+    public static void benchDirectDecode() {
+        byte[] bytes = Hex.decodeHex(RlpTest.POOL_DATA_HEX);
+        java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+
+        int count = 1000000;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            byte[] copy = new byte[direct.remaining()];
+            direct.duplicate().get(copy);
+            Rlp.decode(copy, RlpTest.PoolData[].class);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("copy and decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.decode(direct, RlpTest.PoolData[].class);
+        }
+        end = System.currentTimeMillis();
+        System.out.println("direct decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+    }
+
+    // 64 pool data lists received in 4KB heap segments, concatenated then decoded vs decoded across segments
+    @SneakyThrows
+    public static void benchCompositeDecode() {
+        RlpTest.PoolData[] pools = Rlp.decode(Hex.decodeHex(RlpTest.POOL_DATA_HEX), RlpTest.PoolData[].class);
+        RlpTest.PoolData[][] all = new RlpTest.PoolData[64][];
+        java.util.Arrays.fill(all, pools);
+        byte[] bytes = Rlp.encode(all);
+        int segmentSize = 4096;
+        java.nio.ByteBuffer[] segments = new java.nio.ByteBuffer[(bytes.length + segmentSize - 1) / segmentSize];
+        for (int i = 0; i < segments.length; i++) {
+            int from = i * segmentSize;
+            segments[i] = java.nio.ByteBuffer.wrap(java.util.Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + segmentSize)));
+        }
+
+        int count = 20000;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            byte[] copy = new byte[bytes.length];
+            int off = 0;
+            for (java.nio.ByteBuffer seg : segments) {
+                seg.duplicate().get(copy, off, seg.remaining());
+                off += seg.remaining();
+            }
+            Rlp.decode(copy, RlpTest.PoolData[][].class);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("concat and decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.decode(segments, RlpTest.PoolData[][].class);
+        }
+        end = System.currentTimeMillis();
+        System.out.println("composite decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+    }
+
+    // workload of benchEncodeDecode and benchConstructorDecode by reflective codecs and generated codecs,
+    // each warmed up by a first run before measured
+    public static void benchGeneratedCodecs() {
+        for (int round = 0; round < 2; round++) {
+            Codecs.reset();
+            Rlp.useGeneratedCodecs = round == 1;
+            System.out.println(round == 0 ? "reflective codecs:" : "generated codecs:");
+            benchEncodeDecode();
+            benchEncodeDecode();
+            benchConstructorDecode();
+            benchConstructorDecode();
+        }
+        Rlp.useGeneratedCodecs = false;
+        Codecs.reset();
+    }
+
+    // same primitive properties decoded by setters and by a @RlpCreator constructor
+    public static void benchConstructorDecode() {
+        byte[] bytes = Rlp.encode(new RlpTest.CreatorPrimitives(
+                Long.MAX_VALUE, -1, (short) 0x8001, (byte) 0xff, true, "constructor", new byte[]{1, 2, 3}
+        ));
+
+        int count = 1000000;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.decode(bytes, RlpTest.Primitives.class);
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("setters decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Rlp.decode(bytes, RlpTest.CreatorPrimitives.class);
+        }
+        end = System.currentTimeMillis();
+        System.out.println("constructor decode " + count + " times " + ((end - now) * 1.0 / count) + " ms avg");
     }
 
     @SneakyThrows
     public static void benchEncodeDecode() {
-        String dt = "f90205f84e820539942c93e2f9f75382717af5de4c105ffb4c6503c5b4038a01605d9ee98627100000891b1ae4d6e2ef50000089f3f20b8dfa69d00000891b1ae4d6e2ef5000008089020281c283b028524012f182053994eb4d5af9f8cbb97f6eb95c21f2ff541b121c7fd1018814d1120d7b160000808080808923b97412d86c4ea13a12f84d8205399444915ecba748148cf6ad6a323af8be52d3befb8f01890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac62000008089d5c457fd13c65daff712f84e8205399434451604347d45ef4b5cbd790e88d09907b1706c0189055005f0c61448000089055005f0c6144800008915af1d78b58c4000008915af1d78b58c400000808a0df94d0efa177fd1a51812f8508205399438e4f0437edd9bda6f32caae007c985b97bbcff1808a01a46d2eef9995fe00008a010ec78cd35b142c00008a010f0cf064dd592000008a010f0cf064dd5920000080880de0b6b3a764000012f85082053994c7376932e8f7f03d33ffb3ed781d7f28c6c5bbb5808a01c37637845d6d2000008a010ec78cd35b142c00008a0202fefbf2d7c2f000008a010f0cf064dd5920000080880de0b6b3a764000012f83e820539945b536881e3c4fd7639ca0dcaeffcd73daff98523028a021e19e0c9bab24000008a021e19e0c9bab24000008a021e19e0c9bab240000080808012";
-        byte[] bytes = Hex.decodeHex(dt);
+        byte[] bytes = Hex.decodeHex(RlpTest.POOL_DATA_HEX);
 
         RlpTest.PoolData[] datas = Rlp.decode(bytes, RlpTest.PoolData[].class);
 
@@ -3,6 +3,7 @@ package com.github.salpadding.rlpstream;
 import com.github.salpadding.rlpstream.annotation.RlpCreator;
 import com.github.salpadding.rlpstream.annotation.RlpProps;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.SneakyThrows;
 import org.junit.Assert;
 import org.junit.Test;
@@ -15,6 +16,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import static com.github.salpadding.rlpstream.Constants.EMPTY_LIST;
@@ -762,11 +764,13 @@ public class RlpTest {
         }
     }
 
+    // list of PoolData used by encode and decode tests and benchmarks
+    static final String POOL_DATA_HEX = "f90205f84e820539942c93e2f9f75382717af5de4c105ffb4c6503c5b4038a01605d9ee98627100000891b1ae4d6e2ef50000089f3f20b8dfa69d00000891b1ae4d6e2ef5000008089020281c283b028524012f182053994eb4d5af9f8cbb97f6eb95c21f2ff541b121c7fd1018814d1120d7b160000808080808923b97412d86c4ea13a12f84d8205399444915ecba748148cf6ad6a323af8be52d3befb8f01890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac62000008089d5c457fd13c65daff712f84e8205399434451604347d45ef4b5cbd790e88d09907b1706c0189055005f0c61448000089055005f0c6144800008915af1d78b58c4000008915af1d78b58c400000808a0df94d0efa177fd1a51812f8508205399438e4f0437edd9bda6f32caae007c985b97bbcff1808a01a46d2eef9995fe00008a010ec78cd35b142c00008a010f0cf064dd592000008a010f0cf064dd5920000080880de0b6b3a764000012f85082053994c7376932e8f7f03d33ffb3ed781d7f28c6c5bbb5808a01c37637845d6d2000008a010ec78cd35b142c00008a0202fefbf2d7c2f000008a010f0cf064dd5920000080880de0b6b3a764000012f83e820539945b536881e3c4fd7639ca0dcaeffcd73daff98523028a021e19e0c9bab24000008a021e19e0c9bab24000008a021e19e0c9bab240000080808012";
+
     @SneakyThrows
     @Test
     public void testEncodeDecode() {
-        String dt = "f90205f84e820539942c93e2f9f75382717af5de4c105ffb4c6503c5b4038a01605d9ee98627100000891b1ae4d6e2ef50000089f3f20b8dfa69d00000891b1ae4d6e2ef5000008089020281c283b028524012f182053994eb4d5af9f8cbb97f6eb95c21f2ff541b121c7fd1018814d1120d7b160000808080808923b97412d86c4ea13a12f84d8205399444915ecba748148cf6ad6a323af8be52d3befb8f01890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac6200000890ad78ebc5ac62000008089d5c457fd13c65daff712f84e8205399434451604347d45ef4b5cbd790e88d09907b1706c0189055005f0c61448000089055005f0c6144800008915af1d78b58c4000008915af1d78b58c400000808a0df94d0efa177fd1a51812f8508205399438e4f0437edd9bda6f32caae007c985b97bbcff1808a01a46d2eef9995fe00008a010ec78cd35b142c00008a010f0cf064dd592000008a010f0cf064dd5920000080880de0b6b3a764000012f85082053994c7376932e8f7f03d33ffb3ed781d7f28c6c5bbb5808a01c37637845d6d2000008a010ec78cd35b142c00008a0202fefbf2d7c2f000008a010f0cf064dd5920000080880de0b6b3a764000012f83e820539945b536881e3c4fd7639ca0dcaeffcd73daff98523028a021e19e0c9bab24000008a021e19e0c9bab24000008a021e19e0c9bab240000080808012";
-        byte[] bytes = Hex.decode(dt);
+        byte[] bytes = Hex.decode(POOL_DATA_HEX);
 
         PoolData[] datas = Rlp.decode(bytes, PoolData[].class);
 
@@ -777,7 +781,7 @@ public class RlpTest {
         String writed = Hex.toHexString(RlpWriter.encode(datas));
 
         System.out.println(writed);
-        assert writed.equals(dt);
+        assert writed.equals(POOL_DATA_HEX);
     }
 
     @Test
@@ -889,4 +893,1449 @@ public class RlpTest {
     public void testValidRlpWriter1() {
         Rlp.encode(new ValidInterfaceImpl());
     }
+
+    @Getter
+    @Setter
+    @RlpProps({"l", "i", "s", "b", "bool", "str", "bytes"})
+    public static class Primitives {
+        long l;
+        int i;
+        short s;
+        byte b;
+        boolean bool;
+        String str;
+        byte[] bytes;
+
+        public Primitives() {
+        }
+    }
+
+    // same properties as Primitives, created by a constructor
+    @Getter
+    @RlpProps({"l", "i", "s", "b", "bool", "str", "bytes"})
+    public static class CreatorPrimitives {
+        private final long l;
+        private final int i;
+        private final short s;
+        private final byte b;
+        private final boolean bool;
+        private final String str;
+        private final byte[] bytes;
+
+        @RlpCreator
+        public CreatorPrimitives(long l, int i, short s, byte b, boolean bool, String str, byte[] bytes) {
+            this.l = l;
+            this.i = i;
+            this.s = s;
+            this.b = b;
+            this.bool = bool;
+            this.str = str;
+            this.bytes = bytes;
+        }
+    }
+
+    @Test
+    public void testGeneratedCodecs() {
+        Primitives p = new Primitives();
+        p.l = Long.MAX_VALUE;
+        p.i = -1;
+        p.s = (short) 0x8001;
+        p.b = (byte) 0xff;
+        p.bool = true;
+        p.str = "generated";
+        p.bytes = new byte[]{1, 2, 3};
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        LongWrapper wrapper = new LongWrapper(Long.MAX_VALUE);
+        CreatorPrimitives cp = new CreatorPrimitives(Long.MAX_VALUE, -1, (short) 0x8001, (byte) 0xff, true, "generated", new byte[]{1, 2, 3});
+
+        byte[] encoded = Rlp.encode(p);
+        byte[] cpEncoded = Rlp.encode(cp);
+        assertArrayEquals(encoded, cpEncoded);
+        byte[] pojoEncoded = Rlp.encode(pojo);
+        byte[] wrapperEncoded = Rlp.encode(wrapper);
+
+        Codecs.reset();
+        Rlp.useGeneratedCodecs = true;
+        try {
+            assertArrayEquals(encoded, Rlp.encode(p));
+            assertArrayEquals(pojoEncoded, Rlp.encode(pojo));
+            assertArrayEquals(wrapperEncoded, Rlp.encode(wrapper));
+
+            Primitives decoded = Rlp.decode(encoded, Primitives.class);
+            assertEquals(p.l, decoded.l);
+            assertEquals(p.i, decoded.i);
+            assertEquals(p.s, decoded.s);
+            assertEquals(p.b, decoded.b);
+            assertEquals(p.bool, decoded.bool);
+            assertEquals(p.str, decoded.str);
+            assertArrayEquals(p.bytes, decoded.bytes);
+            assertEquals(pojo.toString(), Rlp.decode(pojoEncoded, Pojo.class).toString());
+            assertEquals(Long.MAX_VALUE, Rlp.decode(wrapperEncoded, LongWrapper.class).getData());
+            assertTrue(Codecs.decoder(Primitives.class) instanceof CodecGenerator.PropsDecoder);
+            assertFalse(Codecs.decoder(LongWrapper.class) instanceof StaticMethodDecoder);
+
+            // properties and constructor arguments by recursion and by frames
+            for (int round = 0; round < 2; round++) {
+                Rlp.useIterativeTraversal = round == 1;
+                Primitives set = Rlp.decode(encoded, Primitives.class);
+                assertEquals(p.l, set.l);
+                assertEquals(p.i, set.i);
+                assertEquals(p.s, set.s);
+                assertEquals(p.b, set.b);
+                assertEquals(p.bool, set.bool);
+                CreatorPrimitives created = Rlp.decode(encoded, CreatorPrimitives.class);
+                assertEquals(cp.l, created.l);
+                assertEquals(cp.i, created.i);
+                assertEquals(cp.s, created.s);
+                assertEquals(cp.b, created.b);
+                assertEquals(cp.bool, created.bool);
+                assertEquals(cp.str, created.str);
+                assertArrayEquals(cp.bytes, created.bytes);
+                assertArrayEquals(encoded, Rlp.encode(created));
+            }
+            Rlp.useIterativeTraversal = false;
+            assertTrue(Codecs.decoder(CreatorPrimitives.class) instanceof CodecGenerator.FixedArityDecoder);
+            try {
+                Rlp.decode(Rlp.encode(new Object[]{1L}), CreatorPrimitives.class);
+                fail();
+            } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+                assertEquals("constructor arguments length not match to rlp list size", e.getMessage());
+            }
+        } finally {
+            Rlp.useIterativeTraversal = false;
+            Rlp.useGeneratedCodecs = false;
+            Codecs.reset();
+        }
+    }
+
+    public static class ServiceLoaded {
+        private final long value;
+
+        public ServiceLoaded(long value) {
+            this.value = value;
+        }
+    }
+
+    // registered in META-INF/services/com.github.salpadding.rlpstream.RlpCodec,
+    // after it a missing class and a class not implementing RlpCodec, which are skipped
+    public static class ServiceLoadedCodec implements RlpCodec<ServiceLoaded> {
+        @Override
+        public Class<ServiceLoaded> type() {
+            return ServiceLoaded.class;
+        }
+
+        @Override
+        public ServiceLoaded decode(byte[] bin, long streamId) {
+            return new ServiceLoaded(StreamId.asLong(bin, streamId));
+        }
+
+        @Override
+        public int encode(RlpBuffer buf, ServiceLoaded o) {
+            return buf.writeLong(o.value);
+        }
+    }
+
+    @Test
+    public void testServiceLoadedCodec() {
+        byte[] encoded = Rlp.encode(new ServiceLoaded(1024));
+        assertArrayEquals(Rlp.encodeLong(1024), encoded);
+        assertEquals(1024, Rlp.decode(encoded, ServiceLoaded.class).value);
+    }
+
+    @Test
+    public void testRegisterDecoder() {
+        Rlp.registerDecoder(ServiceLoaded.class, (bin, streamId) -> new ServiceLoaded(StreamId.asLong(bin, streamId) + 1));
+        try {
+            assertEquals(2, Rlp.decode(Rlp.encodeLong(1), ServiceLoaded.class).value);
+        } finally {
+            Rlp.registerDecoder(ServiceLoaded.class, new ServiceLoadedCodec());
+        }
+    }
+
+    @Test
+    public void testRegisterWriter() {
+        Rlp.registerWriter(ServiceLoaded.class, (buf, o) -> buf.writeLong(o.value + 1));
+        try {
+            assertArrayEquals(Rlp.encodeLong(2), Rlp.encode(new ServiceLoaded(1)));
+        } finally {
+            Rlp.registerWriter(ServiceLoaded.class, new ServiceLoadedCodec());
+        }
+    }
+
+    @Test
+    public void testPreload() {
+        Codecs.reset();
+        try {
+            Rlp.preload(Pojo[].class, LongWrapper.class, ServiceLoaded.class, long[].class);
+            assertNotNull(Codecs.decoder(Pojo.class));
+            assertNotNull(Codecs.writer(Pojo.class));
+            assertNotNull(Codecs.decoder(LongWrapper.class));
+            assertNull(Codecs.writer(LongWrapper.class));
+            assertTrue(Codecs.decoder(ServiceLoaded.class) instanceof ServiceLoadedCodec);
+            // listed after the broken providers
+            assertTrue(Codecs.decoder(ServiceLoadedTree.class) instanceof ServiceLoadedTreeCodec);
+            assertNull(Codecs.decoder(String.class));
+
+            Pojo pojo = new Pojo();
+            pojo.setChild(new Pojo());
+            assertEquals(pojo.toString(), Rlp.decode(Rlp.encode(pojo), Pojo.class).toString());
+        } finally {
+            Codecs.reset();
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        long[] longs = {0, 1, 0x7f, 0x80, Long.MAX_VALUE, -1L};
+        assertArrayEquals(Rlp.encode(new Long[]{0L, 1L, 0x7fL, 0x80L, Long.MAX_VALUE, -1L}), Rlp.encode(longs));
+        assertArrayEquals(longs, Rlp.decode(Rlp.encode(longs), long[].class));
+
+        int[] ints = {0, 1, 0x80, Integer.MAX_VALUE, -1};
+        assertArrayEquals(Rlp.encode(new Integer[]{0, 1, 0x80, Integer.MAX_VALUE, -1}), Rlp.encode(ints));
+        assertArrayEquals(ints, Rlp.decode(Rlp.encode(ints), int[].class));
+
+        short[] shorts = {0, 1, 0x80, Short.MAX_VALUE, -1};
+        assertArrayEquals(Rlp.encode(new Short[]{0, 1, 0x80, Short.MAX_VALUE, -1}), Rlp.encode(shorts));
+        assertArrayEquals(shorts, Rlp.decode(Rlp.encode(shorts), short[].class));
+
+        boolean[] booleans = {true, false, true};
+        assertArrayEquals(Rlp.encode(new Boolean[]{true, false, true}), Rlp.encode(booleans));
+        assertArrayEquals(booleans, Rlp.decode(Rlp.encode(booleans), boolean[].class));
+
+        byte[][] bytes = {new byte[0], new byte[]{1}, new byte[]{(byte) 0x80}, new byte[60]};
+        byte[][] decoded = Rlp.decode(Rlp.encode(bytes), byte[][].class);
+        assertEquals(bytes.length, decoded.length);
+        for (int i = 0; i < bytes.length; i++) {
+            assertArrayEquals(bytes[i], decoded[i]);
+        }
+
+        assertArrayEquals(EMPTY_LIST, Rlp.encode(new long[0]));
+        assertEquals(0, Rlp.decode(EMPTY_LIST, long[].class).length);
+    }
+
+    @Test
+    public void testEncodeExact() {
+        byte[] bytes = Hex.decode(POOL_DATA_HEX);
+        PoolData[] datas = Rlp.decode(bytes, PoolData[].class);
+        assertArrayEquals(bytes, RlpWriter.encodeExact(datas));
+
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        Object[] nested = new Object[]{
+                new byte[300],
+                Arrays.asList(new long[]{1, 2, 3}, new Object[0], new LongWrapper(Long.MAX_VALUE)),
+                new Object[]{new Object[]{new Object[]{new byte[70000]}}},
+                pojo,
+                (RlpWritable) buf -> buf.writeElements(Rlp.encodeLong(1), Rlp.encodeString("exact"))
+        };
+        assertArrayEquals(Rlp.encode(nested), RlpWriter.encodeExact(nested));
+        assertArrayEquals(Rlp.encode(pojo), RlpWriter.encodeExact(pojo));
+        assertArrayEquals(Rlp.encode(1024L), RlpWriter.encodeExact(1024L));
+        assertArrayEquals(EMPTY_LIST, RlpWriter.encodeExact(new Object[0]));
+    }
+
+    @Test
+    public void testEncodeExactNonDeterministic() {
+        // second pass opens a list the first pass didn't record
+        int[] passes = new int[1];
+        RlpWritable extraList = buf -> {
+            if (passes[0]++ == 0)
+                return buf.writeString("abc");
+            buf.allocateListPrefix();
+            int size = buf.writeString("ab");
+            return size + buf.writeListPrefix(size);
+        };
+        // same total size, but bodies of the list differ
+        int[] passes2 = new int[1];
+        RlpWritable otherBody = buf -> {
+            boolean first = passes2[0]++ == 0;
+            buf.allocateListPrefix();
+            int size = buf.writeString(first ? "ab" : "a");
+            return size + buf.writeListPrefix(size) + buf.writeString(first ? "c" : "bc");
+        };
+        for (RlpWritable w : new RlpWritable[]{extraList, otherBody}) {
+            for (int i = 0; i < 4; i++) {
+                passes[0] = 0;
+                passes2[0] = 0;
+                try {
+                    switch (i) {
+                        case 0:
+                            RlpWriter.encodeExact(w);
+                            break;
+                        case 1:
+                            Rlp.encodeInto(w, ByteBuffer.allocateDirect(16));
+                            break;
+                        case 2:
+                            Rlp.encodeTo(w, new ByteArrayOutputStream());
+                            break;
+                        default:
+                            Rlp.encodeGathering(w);
+                    }
+                    fail();
+                } catch (com.github.salpadding.rlpstream.exceptions.RlpEncodeException ignored) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEncodedLength() {
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        Object[] objects = new Object[]{
+                null, 0L, 1L, 0x7fL, 0x80L, -1L, "", "a", "\u0001", "\u00e9", "\u4e2d\u6587", "\ud83d\ude00", "\ud83d", "x\ude00y",
+                new String(new char[100]).replace('\0', 'z'),
+                BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(0x7f), BigInteger.valueOf(0x80), BigInteger.valueOf(0xff),
+                BigInteger.valueOf(0x100), BigInteger.TEN.pow(80),
+                new byte[0], new byte[]{0}, new byte[]{(byte) 0x80}, new byte[56], new byte[70000],
+                new long[]{1, 2, 0x80}, new Object[0], Arrays.asList("a", 2L, new Object[]{new byte[60]}),
+                pojo, new LongWrapper(Long.MAX_VALUE)
+        };
+        for (Object o : objects) {
+            assertEquals(String.valueOf(o), Rlp.encode(o).length, Rlp.encodedLength(o));
+        }
+        assertEquals(Rlp.encode(objects).length, Rlp.encodedLength(objects));
+
+        RlpWritable sized = new RlpWritable() {
+            @Override
+            public int writeToBuf(RlpBuffer buffer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int encodedSize() {
+                return 3;
+            }
+        };
+        assertEquals(3, Rlp.encodedLength(sized));
+        assertEquals(4, Rlp.encodedLength(new Object[]{sized}));
+
+        // sizes over 2GB are reported instead of overflowing
+        RlpWritable huge = new RlpWritable() {
+            @Override
+            public int writeToBuf(RlpBuffer buffer) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int encodedSize() {
+                return Integer.MAX_VALUE - 100;
+            }
+        };
+        try {
+            Rlp.encodedLength(new Object[]{huge, huge});
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpEncodeException ignored) {
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    public void testBulkWrite() {
+        byte[] blob = new byte[70000];
+        for (int i = 0; i < blob.length; i++)
+            blob[i] = (byte) i;
+        List<Object> objects = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        objects.add(blob);
+        expected.add(Rlp.encodeBytes(blob));
+        for (int i = 0; i < 64; i++) {
+            long l = 0x8000000000000000L >>> i;
+            objects.add(l);
+            expected.add(Rlp.encodeLong(l));
+        }
+        byte[] bytes = Rlp.encodeElements(expected);
+
+        for (boolean unsafe : new boolean[]{false, true}) {
+            Rlp.useUnsafe = unsafe;
+            try {
+                assertArrayEquals(bytes, Rlp.encode(objects));
+            } finally {
+                Rlp.useUnsafe = false;
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Rlp.encode(objects, new java.io.DataOutputStream(out));
+        assertArrayEquals(bytes, out.toByteArray());
+    }
+
+    @Test
+    public void testBufferPool() {
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        Object[] objects = new Object[]{pojo, new byte[5000], "pool"};
+        byte[] expected = Rlp.encode(objects);
+
+        Rlp.useUnsafe = true;
+        try {
+            assertArrayEquals(expected, Rlp.encode(objects));
+            BufferPoolStats before = Rlp.bufferPoolStats();
+            for (int i = 0; i < 10; i++)
+                assertArrayEquals(expected, Rlp.encode(objects));
+            BufferPoolStats after = Rlp.bufferPoolStats();
+            assertTrue(after.getHits() - before.getHits() >= 10);
+            assertEquals(before.getMisses(), after.getMisses());
+            assertTrue(after.getRetainedBytes() > 0);
+            assertTrue(after.getPeakRetainedBytes() >= after.getRetainedBytes());
+
+            // pooled buffers are picked by size class of the expected size
+            Rlp.setMaxPooledBytes(0);
+            Rlp.setMaxPooledBytes(BufferPool.DEFAULT_MAX_RETAINED);
+            BufferPool.release(new UnsafeBuf(BufferPool.MIN_POOLED_CAP));
+            BufferPool.release(new UnsafeBuf(BufferPool.MIN_POOLED_CAP * 8));
+            UnsafeBuf large = BufferPool.acquire(BufferPool.MIN_POOLED_CAP * 3);
+            assertEquals(BufferPool.MIN_POOLED_CAP * 8, large.getCap());
+            UnsafeBuf small = BufferPool.acquire(1);
+            assertEquals(BufferPool.MIN_POOLED_CAP, small.getCap());
+            // expected size is clamped, a huge hint doesn't allocate a huge buffer
+            UnsafeBuf fresh = BufferPool.acquire(Integer.MAX_VALUE);
+            assertEquals(BufferPool.MAX_POOLED_CAP, fresh.getCap());
+            BufferPool.release(large);
+            BufferPool.release(small);
+            BufferPool.release(fresh);
+            assertEquals(0, BufferPool.classOf(1));
+            assertEquals(1, BufferPool.classOf(BufferPool.MIN_POOLED_CAP + 1));
+            assertEquals(1, BufferPool.classOf(BufferPool.MIN_POOLED_CAP * 2));
+
+            Rlp.setMaxPooledBytes(0);
+            assertEquals(0, Rlp.bufferPoolStats().getRetainedBytes());
+            assertArrayEquals(expected, Rlp.encode(objects));
+            assertEquals(0, Rlp.bufferPoolStats().getRetainedBytes());
+        } finally {
+            Rlp.useUnsafe = false;
+            Rlp.setMaxPooledBytes(BufferPool.DEFAULT_MAX_RETAINED);
+        }
+
+        try (ReusableEncoder encoder = new ReusableEncoder(16)) {
+            assertArrayEquals(expected, encoder.encode(objects));
+            assertArrayEquals(Rlp.encode(pojo), encoder.encode(pojo));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encoder.encode(objects, new java.io.DataOutputStream(out));
+            assertArrayEquals(expected, out.toByteArray());
+        }
+    }
+
+    @Test
+    public void testEncodeInto() {
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        Object[] objects = new Object[]{pojo, new byte[100], "into", 1024L, new long[]{1, 2}};
+        byte[] expected = Rlp.encode(objects);
+
+        byte[] dst = new byte[expected.length + 4];
+        assertEquals(expected.length, Rlp.encodeInto(objects, dst, 2));
+        assertArrayEquals(expected, Arrays.copyOfRange(dst, 2, 2 + expected.length));
+        assertEquals(0, dst[0]);
+        assertEquals(0, dst[dst.length - 1]);
+
+        byte[] small = new byte[expected.length - 1];
+        assertEquals(-1, Rlp.encodeInto(objects, small, 0));
+        assertArrayEquals(new byte[small.length], small);
+
+        for (java.nio.ByteBuffer buf : new java.nio.ByteBuffer[]{java.nio.ByteBuffer.allocate(expected.length + 3), java.nio.ByteBuffer.allocateDirect(expected.length + 3)}) {
+            buf.position(3);
+            assertEquals(expected.length, Rlp.encodeInto(objects, buf));
+            assertEquals(buf.capacity(), buf.position());
+            assertEquals(-1, Rlp.encodeInto(objects, buf));
+            byte[] written = new byte[expected.length];
+            buf.position(3);
+            buf.get(written);
+            assertArrayEquals(expected, written);
+        }
+
+        for (long l : new long[]{0, 1, 0x7f, 0x80, 0xff, 0x100, Long.MAX_VALUE, -1}) {
+            byte[] e = Rlp.encodeLong(l);
+            byte[] d = new byte[e.length + 1];
+            assertEquals(e.length, Rlp.encodeLongInto(l, d, 1));
+            assertArrayEquals(e, Arrays.copyOfRange(d, 1, d.length));
+            assertEquals(-1, Rlp.encodeLongInto(l, new byte[e.length - 1], 0));
+        }
+        for (byte[] bytes : new byte[][]{null, new byte[0], new byte[]{0}, new byte[]{(byte) 0x80}, new byte[55], new byte[56], new byte[300]}) {
+            byte[] e = Rlp.encodeBytes(bytes);
+            byte[] d = new byte[e.length];
+            assertEquals(e.length, Rlp.encodeBytesInto(bytes, d, 0));
+            assertArrayEquals(e, d);
+        }
+        byte[] d = new byte[16];
+        assertEquals(Rlp.encodeString("\u4e2d\u6587").length, Rlp.encodeStringInto("\u4e2d\u6587", d, 0));
+        assertArrayEquals(Rlp.encodeString("\u4e2d\u6587"), Arrays.copyOf(d, 7));
+    }
+
+    @Test
+    public void testEncodeTo() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 20000; i++)
+            items.add(new Object[]{(long) i, "item" + i, new byte[i % 70]});
+        Object[] objects = new Object[]{new byte[200000], items, new byte[]{1}, new Object[0]};
+        byte[] expected = Rlp.encode(objects);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.length, Rlp.encodeTo(objects, out));
+        assertArrayEquals(expected, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        assertEquals(expected.length, Rlp.encodeTo(objects, java.nio.channels.Channels.newChannel(out)));
+        assertArrayEquals(expected, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        assertEquals(1L, Rlp.encodeTo(1L, out));
+        assertArrayEquals(Rlp.encodeLong(1), out.toByteArray());
+    }
+
+    @Test
+    public void testEncodeGathering() {
+        byte[] blob = new byte[5000];
+        blob[0] = 7;
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++)
+            items.add(new Object[]{(long) i, "item" + i});
+        Object[] objects = new Object[]{blob, items, new byte[100], blob};
+        byte[] expected = Rlp.encode(objects);
+
+        java.nio.ByteBuffer[] buffers = Rlp.encodeGathering(objects, 1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int referenced = 0;
+        for (java.nio.ByteBuffer b : buffers) {
+            if (b.array() == blob)
+                referenced++;
+            out.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+        }
+        assertEquals(2, referenced);
+        assertArrayEquals(expected, out.toByteArray());
+
+        buffers = Rlp.encodeGathering(1L);
+        assertEquals(1, buffers.length);
+        assertEquals(1, buffers[0].remaining());
+    }
+
+    @SneakyThrows
+    @Test
+    public void testRlpReader() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pojo pojo = new Pojo();
+        pojo.setChild(new Pojo());
+        for (int i = 0; i < 100; i++) {
+            out.write(Rlp.encode(pojo));
+        }
+        out.write(Rlp.encode(new Object[]{new byte[200000], 7L}));
+        out.write(Rlp.encode(1L));
+        byte[] all = out.toByteArray();
+
+        // source returns at most 3 bytes every read
+        java.io.InputStream slow = new java.io.ByteArrayInputStream(all) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+        try (RlpReader reader = new RlpReader(slow)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(reader.hasNext());
+                assertEquals(pojo.toString(), reader.next(Pojo.class).toString());
+            }
+            RlpList list = reader.nextList();
+            assertEquals(200000, list.bytesAt(0).length);
+            assertEquals(7L, list.longAt(1));
+            long id = reader.next();
+            assertEquals(1L, StreamId.asLong(reader.buffer(), id));
+            assertFalse(reader.hasNext());
+            assertTrue(StreamId.isEOF(reader.next()));
+        }
+
+        try (RlpReader reader = new RlpReader(java.nio.channels.Channels.newChannel(new java.io.ByteArrayInputStream(all)))) {
+            assertEquals(100, reader.stream(Pojo.class).limit(100).count());
+            assertEquals(2, reader.nextList().size());
+        }
+
+        try (RlpReader reader = new RlpReader(new java.io.ByteArrayInputStream(all, 0, all.length - 2))) {
+            assertEquals(100, reader.stream(Pojo.class).limit(100).count());
+            reader.next();
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+
+        try (RlpReader reader = new RlpReader(new java.io.ByteArrayInputStream(all), 100000)) {
+            assertEquals(100, reader.stream(Pojo.class).limit(100).count());
+            reader.next();
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    public void testRlpPushParser() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<byte[]> elements = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            byte[] e = Rlp.encode(new Object[]{(long) i, new byte[i * 37], "push"});
+            elements.add(e);
+            out.write(e);
+        }
+        byte[] all = out.toByteArray();
+
+        Random random = new Random(1);
+        RlpPushParser parser = new RlpPushParser();
+        List<byte[]> parsed = new ArrayList<>();
+        int off = 0;
+        while (off < all.length) {
+            int n = Math.min(all.length - off, random.nextInt(100) + 1);
+            parser.feed(java.nio.ByteBuffer.wrap(all, off, n));
+            off += n;
+            while (true) {
+                long id = parser.next();
+                if (StreamId.isEOF(id)) {
+                    assertTrue(parser.needed() > 0);
+                    break;
+                }
+                int begin = StreamId.offsetOf(id) - StreamId.prefixSizeOf(id);
+                parsed.add(Arrays.copyOfRange(parser.buffer(), begin, StreamId.offsetOf(id) + StreamId.sizeOf(id)));
+            }
+        }
+        assertEquals(0, parser.buffered());
+        assertEquals(elements.size(), parsed.size());
+        for (int i = 0; i < elements.size(); i++)
+            assertArrayEquals(elements.get(i), parsed.get(i));
+
+        // header of long list is incomplete, then body is incomplete
+        byte[] e = elements.get(10);
+        parser.feed(e, 0, 2);
+        assertTrue(StreamId.isEOF(parser.next()));
+        assertEquals(0xf9, e[0] & 0xff);
+        assertEquals(1, parser.needed());
+        parser.feed(e, 2, e.length - 3);
+        assertTrue(StreamId.isEOF(parser.next()));
+        assertEquals(1, parser.needed());
+        parser.feed(e, e.length - 1, 1);
+        assertFalse(StreamId.isEOF(parser.next()));
+
+        RlpPushParser small = new RlpPushParser(100);
+        small.feed(elements.get(10), 0, 4);
+        try {
+            small.next();
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+    }
+
+    @Test
+    public void testLazyRlpList() {
+        Object[] objects = new Object[500];
+        for (int i = 0; i < objects.length; i++)
+            objects[i] = (long) i;
+        byte[] encoded = Rlp.encode(objects);
+        long streamId = RlpStream.decodeElement(encoded, 0, encoded.length, true);
+        assertEquals(500, RlpList.countChildren(encoded, streamId));
+
+        RlpList list = Rlp.decodeList(encoded);
+        assertEquals(3, list.longAt(3));
+        assertEquals(500, list.size());
+        assertEquals(499, list.longAt(499));
+        assertEquals(10, list.longAt(10));
+
+        list = StreamId.asList(encoded, streamId, 500);
+        assertEquals(499, list.longAt(499));
+        assertEquals(500, list.size());
+        try {
+            list.longAt(500);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+
+        // only children up to the requested one are parsed, tail is not validated until accessed
+        byte[] truncated = new byte[]{(byte) 0xc9, 0x01, (byte) 0xb8, 0x64, 0, 0, 0, 0, 0, 0};
+        RlpList head = Rlp.decodeList(truncated);
+        assertEquals(1, head.longAt(0));
+        try {
+            head.bytesAt(1);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+
+        // shared list indexed lazily by several threads
+        for (int round = 0; round < 20; round++) {
+            RlpList shared = Rlp.decodeList(encoded);
+            java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int seed = t;
+                threads[t] = new Thread(() -> {
+                    Random r = new Random(seed);
+                    for (int i = 0; i < 2000; i++) {
+                        int idx = r.nextInt(objects.length);
+                        if (shared.longAt(idx) != idx || shared.size() != objects.length)
+                            failures.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            assertEquals(0, failures.get());
+        }
+    }
+
+    @Test
+    public void testRlpPath() {
+        Object[] txs = new Object[5];
+        for (int i = 0; i < txs.length; i++)
+            txs[i] = new Object[]{(long) i, "from" + i, new byte[i * 30], "to" + i};
+        byte[] block = Rlp.encode(new Object[]{new Object[]{1L, "header"}, txs, new Object[0]});
+        long root = RlpStream.decodeElement(block, 0, block.length, true);
+
+        assertEquals("to3", StreamId.asString(block, StreamId.at(block, root, 1, 3, 3)));
+        assertEquals("header", StreamId.asString(block, StreamId.at(block, StreamId.at(block, root, 0), 1)));
+        assertEquals(root, StreamId.at(block, root, new int[0]));
+
+        RlpPath to = RlpPath.of(1, 4, 3);
+        assertEquals("to4", StreamId.asString(block, to.find(block)));
+        assertEquals(120, StreamId.sizeOf(RlpPath.of(1, 4, 2).find(block, root)));
+        assertEquals("[1, 4, 3]", to.toString());
+
+        assertTrue(StreamId.isEOF(StreamId.at(block, root, 1, 5, 3)));
+        assertTrue(StreamId.isEOF(RlpPath.of(2, 0).find(block)));
+        try {
+            StreamId.at(block, root, 1, 3, 3, 0);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+    }
+
+    @RlpProps({"hash", "data"})
+    @Getter
+    @Setter
+    public static class BytesHolder {
+        private RlpBytes hash;
+        private RlpBytes data;
+
+        public BytesHolder() {
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    public void testRlpBytes() {
+        byte[] hash = new byte[32];
+        hash[0] = (byte) 0xff;
+        byte[] data = new byte[100];
+        data[99] = 1;
+        byte[] encoded = Rlp.encode(new Object[]{hash, data});
+
+        BytesHolder holder = Rlp.decode(encoded, BytesHolder.class);
+        assertArrayEquals(hash, holder.getHash().toByteArray());
+        assertArrayEquals(data, holder.getData().toByteArray());
+        assertArrayEquals(encoded, Rlp.encode(holder));
+        assertEquals(encoded.length, Rlp.encodedLength(holder));
+
+        RlpList list = Rlp.decodeList(encoded);
+        assertEquals(RlpBytes.wrap(hash), list.rlpBytesAt(0));
+        assertEquals(RlpBytes.wrap(hash).hashCode(), list.rlpBytesAt(0).hashCode());
+        assertEquals(RlpBytes.wrap(Rlp.encodeBytes(data)), list.rawRlpBytesAt(1));
+        assertTrue(list.rlpBytesAt(0).compareTo(list.rlpBytesAt(1)) > 0);
+        assertEquals(0, RlpBytes.wrap(new byte[]{1, 2}).compareTo(RlpBytes.wrap(new byte[]{0, 1, 2, 3}, 1, 2)));
+        assertTrue(RlpBytes.wrap(new byte[]{1}).compareTo(RlpBytes.wrap(new byte[]{1, 0})) < 0);
+        assertEquals("ff00", RlpBytes.wrap(hash).slice(0, 2).toString());
+
+        java.nio.ByteBuffer buf = java.nio.ByteBuffer.allocate(100);
+        list.rlpBytesAt(1).copyTo(buf);
+        assertArrayEquals(data, buf.array());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        list.rlpBytesAt(1).writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+
+        for (byte[] b : new byte[][]{new byte[0], new byte[]{0}, new byte[]{1}, new byte[]{(byte) 0x80}, new byte[56]}) {
+            assertArrayEquals(Rlp.encodeBytes(b), Rlp.encode(RlpBytes.wrap(b)));
+            assertEquals(Rlp.encodeBytes(b).length, Rlp.encodedLength(RlpBytes.wrap(b)));
+        }
+        assertSame(RlpBytes.EMPTY, Rlp.decode(Rlp.encodeBytes(null), RlpBytes.class));
+    }
+
+    @Test
+    public void testTryDecode() {
+        RlpResult<String[]> ok = Rlp.tryDecode(Rlp.encode(new String[]{"a", "b"}), String[].class);
+        assertTrue(ok.isOk());
+        assertArrayEquals(new String[]{"a", "b"}, ok.get());
+
+        // malformed nested element
+        RlpResult<String[]> malformed = Rlp.tryDecode(new byte[]{(byte) 0xc4, (byte) 0xc2, (byte) 0x81, 0, (byte) 0xc0}, String[].class);
+        assertFalse(malformed.isOk());
+        assertEquals(RlpError.NON_CANONICAL_SHORT_ITEM, malformed.getCode());
+        assertEquals(2, malformed.getOffset());
+        assertNull(malformed.orElse(null));
+
+        RlpResult<Byte> overflow = Rlp.tryDecode(Rlp.encodeLong(256), Byte.class);
+        assertEquals(RlpError.NUMERIC_OVERFLOW, overflow.getCode());
+        assertEquals(1, overflow.getOffset());
+
+        RlpResult<Long> leadingZero = Rlp.tryDecode(new byte[]{(byte) 0x82, 0, 1}, Long.class);
+        assertEquals(RlpError.LEADING_ZERO_NUMBER, leadingZero.getCode());
+
+        try {
+            leadingZero.get();
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.LEADING_ZERO_NUMBER, e.getCode());
+            assertEquals(1, e.getOffset());
+        }
+
+        long id = StreamId.tryDecodeElement(new byte[]{(byte) 0xb8, 1, 0}, 0, 3, true);
+        assertTrue(RlpError.isError(id));
+        assertEquals(RlpError.NON_CANONICAL_LONG_ITEM, RlpError.codeOf(id));
+        assertFalse(RlpError.isError(StreamId.tryDecodeElement(new byte[]{(byte) 0x81, (byte) 0x80}, 0, 2, true)));
+    }
+
+    @Test
+    public void testStacklessExceptions() {
+        Rlp.useStacklessExceptions();
+        try {
+            Rlp.decode(new byte[]{(byte) 0xc3, (byte) 0x81, 0x01, 0x02}, String[].class);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(0, e.getStackTrace().length);
+            assertEquals(RlpError.NON_CANONICAL_SHORT_ITEM, e.getCode());
+            assertEquals(1, e.getOffset());
+        } finally {
+            com.github.salpadding.rlpstream.exceptions.RlpException.setStackTraceEnabled(true);
+        }
+
+        try {
+            Rlp.decodeList(new byte[]{(byte) 0x80});
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertTrue(e.getStackTrace().length > 0);
+            assertEquals(RlpError.NOT_A_LIST, e.getCode());
+        }
+    }
+
+    @Test
+    public void testDecodeOptions() throws Exception {
+        Object nested = new byte[0];
+        for (int i = 0; i < 100; i++)
+            nested = new Object[]{nested};
+        byte[] deep = Rlp.encode(nested);
+        RlpDecodeOptions options = RlpDecodeOptions.UNLIMITED.withMaxDepth(50);
+        assertEquals(RlpError.OK, Rlp.validate(deep, 0, deep.length, RlpDecodeOptions.UNLIMITED.withMaxDepth(100)));
+        long r = Rlp.validate(deep, 0, deep.length, options);
+        assertEquals(RlpError.DEPTH_EXCEEDED, RlpError.codeOf(r));
+        // offset of the 51st nested list
+        int[] path = new int[50];
+        long id = StreamId.at(deep, StreamId.decodeElement(deep, 0, deep.length, true), path);
+        assertEquals(StreamId.offsetOf(id) - StreamId.prefixSizeOf(id), RlpError.offsetOf(r));
+        // direct buffers are validated in place with same errors
+        java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(deep.length);
+        direct.put(deep).flip();
+        assertEquals(r, Rlp.validate(direct, options));
+        assertEquals(RlpError.OK, Rlp.validate(direct, RlpDecodeOptions.UNLIMITED.withMaxDepth(100)));
+        try {
+            Rlp.decodeList(deep, options);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.DEPTH_EXCEEDED, e.getCode());
+        }
+
+        String[] strings = new String[1000];
+        Arrays.fill(strings, "a");
+        byte[] many = Rlp.encode(strings);
+        assertEquals(1000, Rlp.decode(many, String[].class, RlpDecodeOptions.UNLIMITED.withMaxElements(1001)).length);
+        assertEquals(RlpError.TOO_MANY_ELEMENTS, Rlp.tryDecode(many, String[].class, RlpDecodeOptions.UNLIMITED.withMaxElements(1000)).getCode());
+
+        byte[] large = Rlp.encode(new Object[]{1L, new byte[1000]});
+        assertEquals(RlpError.ITEM_TOO_LARGE, RlpError.codeOf(Rlp.validate(large, 0, large.length, RlpDecodeOptions.UNLIMITED.withMaxItemSize(999))));
+        assertEquals(RlpError.OK, Rlp.validate(large, 0, large.length, RlpDecodeOptions.UNLIMITED.withMaxItemSize(1000)));
+        // 1 + 1000 bytes of content and 3 elements
+        assertEquals(RlpError.OK, Rlp.validate(large, 0, large.length, RlpDecodeOptions.UNLIMITED.withMaxAllocation(1001 + 48)));
+        assertEquals(RlpError.ALLOCATION_EXCEEDED, RlpError.codeOf(Rlp.validate(large, 0, large.length, RlpDecodeOptions.UNLIMITED.withMaxAllocation(1000 + 48))));
+        java.nio.ByteBuffer largeDirect = java.nio.ByteBuffer.allocateDirect(large.length);
+        largeDirect.put(large).flip();
+        for (RlpDecodeOptions o : new RlpDecodeOptions[]{
+                RlpDecodeOptions.UNLIMITED.withMaxItemSize(999), RlpDecodeOptions.UNLIMITED.withMaxAllocation(1000 + 48),
+                RlpDecodeOptions.UNLIMITED.withMaxElements(2), RlpDecodeOptions.UNLIMITED.withMaxElements(3)})
+            assertEquals(Rlp.validate(large, 0, large.length, o), Rlp.validate(largeDirect, o));
+
+        byte[] stream = new byte[many.length + large.length];
+        System.arraycopy(many, 0, stream, 0, many.length);
+        System.arraycopy(large, 0, stream, many.length, large.length);
+        try (RlpReader reader = new RlpReader(new java.io.ByteArrayInputStream(stream))) {
+            assertEquals(1000, reader.next(String[].class, RlpDecodeOptions.UNLIMITED.withMaxItemSize(1)).length);
+            try {
+                reader.next(RlpList.class, RlpDecodeOptions.UNLIMITED.withMaxItemSize(1));
+                fail();
+            } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+                assertEquals(RlpError.ITEM_TOO_LARGE, e.getCode());
+            }
+        }
+    }
+
+    @Getter
+    @RlpProps({"value", "children"})
+    public static class Tree {
+        private final long value;
+        private final List<Tree> children;
+
+        @RlpCreator
+        public Tree(long value, Tree[] children) {
+            this.value = value;
+            this.children = Arrays.asList(children);
+        }
+    }
+
+    @Test
+    public void testIterativeTraversal() throws Exception {
+        Tree wide = new Tree(1, new Tree[]{new Tree(2, new Tree[0]), new Tree(3, new Tree[]{new Tree(4, new Tree[0])})});
+        examples.Sequence seq = new examples.Sequence("foo", "bar", new examples.HexBytes(new byte[]{1}), new examples.Sequence[]{
+                new examples.Sequence("a", "b", null, new examples.Sequence[0])
+        });
+        Object[] mixed = new Object[]{1L, new long[]{1, 2}, Arrays.asList("a", new byte[][]{{1}}), new Object[]{new Object[0]}};
+        byte[] treeBytes = Rlp.encode(wide);
+        byte[] seqBytes = Rlp.encode(seq);
+        byte[] mixedBytes = Rlp.encode(mixed);
+        byte[] poolBytes = Rlp.encode(Rlp.decode(Hex.decode(POOL_DATA_HEX), PoolData[].class));
+
+        Object nested = new byte[0];
+        for (int i = 0; i < 10000; i++)
+            nested = new Object[]{(long) i, nested};
+        examples.Sequence deep = new examples.Sequence("x", "y", null, new examples.Sequence[0]);
+        for (int i = 0; i < 10000; i++)
+            deep = new examples.Sequence("x", "y", null, new examples.Sequence[]{deep});
+        Object deepList = nested;
+        examples.Sequence deepSeq = deep;
+
+        Rlp.useIterativeTraversal();
+        try {
+            // same encoding as recursive traversal
+            assertArrayEquals(treeBytes, Rlp.encode(wide));
+            assertArrayEquals(seqBytes, Rlp.encode(seq));
+            assertArrayEquals(mixedBytes, Rlp.encode(mixed));
+            assertArrayEquals(treeBytes, Rlp.encode(Rlp.decode(treeBytes, Tree.class)));
+            assertArrayEquals(seqBytes, Rlp.encode(Rlp.decode(seqBytes, examples.Sequence.class)));
+            assertArrayEquals(poolBytes, Rlp.encode(Rlp.decode(poolBytes, PoolData[].class)));
+            assertEquals(4, Rlp.decode(treeBytes, Tree.class).getChildren().get(1).getChildren().get(0).getValue());
+            assertArrayEquals(treeBytes, RlpWriter.encodeExact(wide));
+
+            // deep nesting on a small thread stack
+            Throwable[] error = new Throwable[1];
+            Thread t = new Thread(null, () -> {
+                try {
+                    byte[] deepListBytes = Rlp.encode(deepList);
+                    byte[] deepSeqBytes = Rlp.encode(deepSeq);
+                    assertEquals(Rlp.encodedLength(deepList), deepListBytes.length);
+                    examples.Sequence decoded = Rlp.decode(deepSeqBytes, examples.Sequence.class);
+                    assertArrayEquals(deepSeqBytes, Rlp.encode(decoded));
+                    assertEquals(2, Rlp.decodeList(deepListBytes).size());
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            }, "small-stack", 128 * 1024);
+            t.start();
+            t.join();
+            if (error[0] != null)
+                throw new AssertionError(error[0]);
+
+            try {
+                Rlp.decode(Rlp.encode(new Object[]{1L}), Tree.class);
+                fail();
+            } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+                assertEquals("constructor arguments length not match to rlp list size", e.getMessage());
+            }
+        } finally {
+            Rlp.useIterativeTraversal = false;
+        }
+    }
+
+    // decoded by a codec loaded by ServiceLoader, which exposes children like codecs generated by rlp-stream-processor
+    @Getter
+    @Setter
+    @RlpProps({"value", "children"})
+    public static class ServiceLoadedTree {
+        private long value;
+        private ServiceLoadedTree[] children;
+
+        public ServiceLoadedTree() {
+        }
+
+        public ServiceLoadedTree(long value, ServiceLoadedTree[] children) {
+            this.value = value;
+            this.children = children;
+        }
+    }
+
+    // registered in META-INF/services/com.github.salpadding.rlpstream.RlpCodec
+    public static class ServiceLoadedTreeCodec implements RlpCodec<ServiceLoadedTree>, ListDecoder<ServiceLoadedTree>, ListWriter {
+        // children set by setLong, boxed values are rejected
+        int boxed;
+
+        @Override
+        public Class<ServiceLoadedTree> type() {
+            return ServiceLoadedTree.class;
+        }
+
+        @Override
+        public ServiceLoadedTree decode(byte[] bin, long streamId) {
+            long value = StreamId.asLong(bin, RlpStream.iterateList(bin, streamId, streamId));
+            long j = RlpStream.iterateList(bin, streamId, RlpStream.iterateList(bin, streamId, streamId));
+            return new ServiceLoadedTree(value, RlpStream.decode(bin, j, ServiceLoadedTree[].class));
+        }
+
+        @Override
+        public int encode(RlpBuffer buf, ServiceLoadedTree o) {
+            return buf.writeObject(new Object[]{o.value, o.children});
+        }
+
+        @Override
+        public Object begin() {
+            return new ServiceLoadedTree();
+        }
+
+        @Override
+        public Class<?> typeAt(int i) {
+            if (i > 1)
+                throw new com.github.salpadding.rlpstream.exceptions.RlpDecodeException("arguments length not match to rlp list size");
+            return i == 0 ? long.class : ServiceLoadedTree[].class;
+        }
+
+        @Override
+        public void set(Object state, int i, Object value) {
+            if (i == 0)
+                boxed++;
+            else
+                ((ServiceLoadedTree) state).setChildren((ServiceLoadedTree[]) value);
+        }
+
+        @Override
+        public void setLong(Object state, int i, long value) {
+            ((ServiceLoadedTree) state).setValue(value);
+        }
+
+        @Override
+        public ServiceLoadedTree finish(Object state, int c) {
+            if (c != 2)
+                throw new com.github.salpadding.rlpstream.exceptions.RlpDecodeException("arguments length not match to rlp list size");
+            return (ServiceLoadedTree) state;
+        }
+
+        @Override
+        public int size() {
+            return 2;
+        }
+
+        @Override
+        public Object get(Object o, int i) {
+            ServiceLoadedTree t = (ServiceLoadedTree) o;
+            return i == 0 ? (Object) t.value : t.children;
+        }
+    }
+
+    @Test
+    public void testIterativeGeneratedCodecs() throws Exception {
+        examples.Sequence deep = new examples.Sequence("x", "y", null, new examples.Sequence[0]);
+        ServiceLoadedTree tree = new ServiceLoadedTree(0, new ServiceLoadedTree[0]);
+        for (int i = 0; i < 10000; i++) {
+            deep = new examples.Sequence("x", "y", null, new examples.Sequence[]{deep});
+            tree = new ServiceLoadedTree(i, new ServiceLoadedTree[]{tree});
+        }
+        examples.Sequence deepSeq = deep;
+        ServiceLoadedTree deepTree = tree;
+        byte[] small = Rlp.encode(new ServiceLoadedTree(1, new ServiceLoadedTree[]{new ServiceLoadedTree(2, new ServiceLoadedTree[0])}));
+
+        Codecs.reset();
+        Rlp.useGeneratedCodecs = true;
+        Rlp.useIterativeTraversal();
+        try {
+            assertArrayEquals(small, Rlp.encode(Rlp.decode(small, ServiceLoadedTree.class)));
+            // deep nesting on a small thread stack, generated and service loaded codecs are expanded as frames
+            Throwable[] error = new Throwable[1];
+            Thread t = new Thread(null, () -> {
+                try {
+                    byte[] deepSeqBytes = Rlp.encode(deepSeq);
+                    assertArrayEquals(deepSeqBytes, Rlp.encode(Rlp.decode(deepSeqBytes, examples.Sequence.class)));
+                    byte[] deepTreeBytes = Rlp.encode(deepTree);
+                    ServiceLoadedTree decoded = Rlp.decode(deepTreeBytes, ServiceLoadedTree.class);
+                    assertEquals(9999, decoded.getValue());
+                    assertArrayEquals(deepTreeBytes, Rlp.encode(decoded));
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            }, "small-stack", 128 * 1024);
+            t.start();
+            t.join();
+            if (error[0] != null)
+                throw new AssertionError(error[0]);
+            assertTrue(Codecs.decoder(examples.Sequence.class) instanceof CodecGenerator.PropsDecoder);
+            assertTrue(Codecs.writer(examples.Sequence.class) instanceof CodecGenerator.PropsWriter);
+            assertTrue(Codecs.decoder(ServiceLoadedTree.class) instanceof ServiceLoadedTreeCodec);
+            assertEquals(0, ((ServiceLoadedTreeCodec) Codecs.decoder(ServiceLoadedTree.class)).boxed);
+            // codec loaded by ServiceLoader without children exposed is a leaf
+            assertEquals(7L, Rlp.decode(Rlp.encode(new ServiceLoaded(7)), ServiceLoaded.class).value);
+            assertTrue(Codecs.decoder(ServiceLoaded.class) instanceof ServiceLoadedCodec);
+        } finally {
+            Rlp.useIterativeTraversal = false;
+            Rlp.useGeneratedCodecs = false;
+            Codecs.reset();
+        }
+    }
+
+    @Test
+    public void testSourceStreamId() {
+        byte[] blob = new byte[300];
+        Arrays.fill(blob, (byte) 7);
+        byte[] encoded = Rlp.encode(new Object[]{1000L, blob, new Object[]{"abc", BigInteger.TEN.pow(30)}, new byte[0]});
+
+        java.util.List<RlpSource> sources = new ArrayList<>();
+        sources.add(RlpSource.of(encoded));
+        for (int segmentSize : new int[]{7, 8, 64}) {
+            java.util.List<java.nio.ByteBuffer> segments = new ArrayList<>();
+            for (int i = 0; i < encoded.length; i += segmentSize) {
+                int n = Math.min(segmentSize, encoded.length - i);
+                java.nio.ByteBuffer b = java.nio.ByteBuffer.allocateDirect(n + 2);
+                b.put((byte) 0).put(encoded, i, n).flip().position(1);
+                segments.add(b);
+            }
+            sources.add(RlpSource.of(segments.toArray(new java.nio.ByteBuffer[0])));
+        }
+
+        for (RlpSource src : sources) {
+            assertEquals(encoded.length, src.size());
+            long root = SourceStreamId.decodeElement(src);
+            assertTrue(SourceStreamId.isList(root));
+            assertEquals(encoded.length, SourceStreamId.endOf(0, root));
+            assertEquals(4, SourceStreamId.countChildren(src, 0, root));
+            long end = SourceStreamId.endOf(0, root);
+
+            long p = SourceStreamId.contentOffsetOf(0, root);
+            long h = SourceStreamId.decodeElement(src, p, end, false);
+            assertEquals(1000L, SourceStreamId.asLong(src, p, h));
+            p = SourceStreamId.endOf(p, h);
+            h = SourceStreamId.decodeElement(src, p, end, false);
+            assertArrayEquals(blob, SourceStreamId.asBytes(src, p, h));
+
+            p = SourceStreamId.childAt(src, 0, root, 2);
+            h = SourceStreamId.decodeElement(src, p, end, false);
+            assertArrayEquals(new String[]{"abc", BigInteger.TEN.pow(30).toString()}, new String[]{
+                    SourceStreamId.asString(src, SourceStreamId.childAt(src, p, h, 0), SourceStreamId.decodeElement(src, SourceStreamId.childAt(src, p, h, 0), end, false)),
+                    SourceStreamId.asBigInteger(src, SourceStreamId.childAt(src, p, h, 1), SourceStreamId.decodeElement(src, SourceStreamId.childAt(src, p, h, 1), end, false)).toString()
+            });
+            assertEquals(SourceStreamId.EOF, SourceStreamId.childAt(src, 0, root, 4));
+            assertArrayEquals(Rlp.encode(new Object[]{"abc", BigInteger.TEN.pow(30)}), SourceStreamId.rawOf(src, p, h));
+            byte[][] decoded = SourceStreamId.decode(src, p, h, byte[][].class);
+            assertArrayEquals("abc".getBytes(), decoded[0]);
+        }
+
+        // item of 3GB, content is never read
+        long size = 3L << 30;
+        RlpSource large = new RlpSource() {
+            @Override
+            public long size() {
+                return 5 + size;
+            }
+
+            @Override
+            public byte get(long index) {
+                return index == 0 ? (byte) 0xbb : index == 1 ? (byte) 0xc0 : 0;
+            }
+
+            @Override
+            public void get(long index, byte[] dst, int off, int len) {
+                for (int i = 0; i < len; i++)
+                    dst[off + i] = get(index + i);
+            }
+        };
+        long h = SourceStreamId.decodeElement(large);
+        assertFalse(SourceStreamId.isList(h));
+        assertEquals(size, SourceStreamId.sizeOf(h));
+        assertEquals(5, SourceStreamId.prefixSizeOf(h));
+        try {
+            SourceStreamId.asBytes(large, 0, h);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException ignored) {
+        }
+        try {
+            SourceStreamId.decodeElement(large, 0, size, false);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.OUT_OF_BOUNDS, e.getCode());
+        }
+    }
+
+    @Test
+    public void testRlpMappedFile() throws Exception {
+        byte[] blob = new byte[1000];
+        for (int i = 0; i < blob.length; i++)
+            blob[i] = (byte) i;
+        Object[] items = new Object[100];
+        for (int i = 0; i < items.length; i++)
+            items[i] = new Object[]{(long) i * 1000, "item" + i, blob, BigInteger.valueOf(i).shiftLeft(100)};
+        byte[] encoded = Rlp.encode(items);
+
+        java.nio.file.Path path = java.nio.file.Files.createTempFile("rlp", ".bin");
+        try {
+            java.nio.file.Files.write(path, encoded);
+            // segments much smaller than elements, so elements straddle segments
+            try (RlpMappedFile file = RlpMappedFile.open(path, 256)) {
+                assertEquals(encoded.length, file.getSize());
+                SourceRlpList list = file.asList();
+                RlpList expected = Rlp.decodeList(encoded);
+                assertEquals(expected.size(), list.size());
+                for (int i = items.length - 1; i >= 0; i--) {
+                    SourceRlpList item = list.listAt(i);
+                    assertTrue(list.isListAt(i));
+                    assertEquals(i * 1000L, item.longAt(0));
+                    assertEquals("item" + i, item.stringAt(1));
+                    assertArrayEquals(blob, item.bytesAt(2));
+                    assertEquals(BigInteger.valueOf(i).shiftLeft(100), item.bigIntAt(3));
+                    assertArrayEquals(expected.rawAt(i), list.rawAt(i));
+                    assertEquals(4, list.valueAt(i, byte[][].class).length);
+                    assertEquals("item" + i, item.valueAt(1, String.class));
+                }
+                assertEquals(items.length, file.decode(byte[][][].class).length);
+            }
+
+            // reads after close throw instead of touching released memory
+            RlpMappedFile file = RlpMappedFile.open(path, 256);
+            SourceRlpList list = file.asList();
+            SourceRlpList item = list.listAt(1);
+            file.close();
+            file.close();
+            for (Runnable r : Arrays.<Runnable>asList(
+                    () -> item.bytesAt(2),
+                    () -> list.listAt(2),
+                    () -> file.decode(byte[][][].class),
+                    () -> file.getSource().get(0)
+            )) {
+                try {
+                    r.run();
+                    fail();
+                } catch (IllegalStateException ignored) {
+                }
+            }
+        } finally {
+            java.nio.file.Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testDirectDecode() {
+        byte[] bin = Hex.decode(POOL_DATA_HEX);
+        byte[] expected = Rlp.encode(Rlp.decode(bin, PoolData[].class));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bin.length + 3);
+        direct.position(3);
+        direct.put(bin);
+        direct.position(3);
+        assertArrayEquals(expected, Rlp.encode(Rlp.decode(direct, PoolData[].class)));
+        assertEquals(3, direct.position());
+
+        // heap buffer backed by array with non-zero offset
+        byte[] padded = new byte[bin.length + 5];
+        System.arraycopy(bin, 0, padded, 2, bin.length);
+        ByteBuffer heap = ByteBuffer.wrap(padded, 1, bin.length + 1);
+        heap.get();
+        ByteBuffer sliced = heap.slice();
+        sliced.limit(bin.length);
+        assertArrayEquals(expected, Rlp.encode(Rlp.decode(sliced, PoolData[].class)));
+
+        examples.Sequence seq = new examples.Sequence("foo", "bar", new examples.HexBytes(new byte[]{1, 2}), new examples.Sequence[]{
+                new examples.Sequence("a", "b", null, new examples.Sequence[0])
+        });
+        byte[] seqBytes = Rlp.encode(seq);
+        ByteBuffer seqBuf = ByteBuffer.allocateDirect(seqBytes.length);
+        seqBuf.put(seqBytes).flip();
+        assertArrayEquals(seqBytes, Rlp.encode(Rlp.decode(seqBuf, examples.Sequence.class)));
+
+        byte[] encoded = Rlp.encode(new Object[]{1000L, "direct", BigInteger.TEN.pow(30), new Object[]{new byte[]{1}}});
+        ByteBuffer listBuf = ByteBuffer.allocateDirect(encoded.length);
+        listBuf.put(encoded).flip();
+        SourceRlpList list = Rlp.decodeList(listBuf);
+        assertEquals(4, list.size());
+        assertEquals(1000L, list.longAt(0));
+        assertEquals("direct", list.stringAt(1));
+        assertEquals(BigInteger.TEN.pow(30), list.bigIntAt(2));
+        assertTrue(list.isListAt(3));
+        assertArrayEquals(new byte[]{1}, list.listAt(3).bytesAt(0));
+    }
+
+    @Test
+    public void testDirectDecodeDeep() throws Exception {
+        examples.Sequence deep = new examples.Sequence("x", "y", null, new examples.Sequence[0]);
+        for (int i = 0; i < 10000; i++)
+            deep = new examples.Sequence("x", "y", null, new examples.Sequence[]{deep});
+        Rlp.useIterativeTraversal();
+        byte[] deepBytes;
+        try {
+            deepBytes = Rlp.encode(deep);
+        } finally {
+            Rlp.useIterativeTraversal = false;
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(deepBytes.length);
+        direct.put(deepBytes).flip();
+        // direct segments of 4KB, lists straddling segments are expanded by frames
+        ByteBuffer[] segments = new ByteBuffer[(deepBytes.length + 4095) / 4096];
+        for (int i = 0; i < segments.length; i++) {
+            int n = Math.min(4096, deepBytes.length - i * 4096);
+            segments[i] = ByteBuffer.allocateDirect(n);
+            segments[i].put(deepBytes, i * 4096, n).flip();
+        }
+
+        // source decoding is not recursive, whether iterative traversal is enabled or not
+        Throwable[] error = new Throwable[1];
+        Thread t = new Thread(null, () -> {
+            try {
+                examples.Sequence[] decoded = new examples.Sequence[]{
+                        Rlp.decode(direct, examples.Sequence.class),
+                        Rlp.decode(segments, examples.Sequence.class),
+                        Rlp.decode(direct, examples.Sequence.class, RlpDecodeOptions.UNLIMITED.withMaxDepth(20002))
+                };
+                Rlp.useIterativeTraversal();
+                assertArrayEquals(deepBytes, Rlp.encode(Rlp.decode(direct, examples.Sequence.class)));
+                for (examples.Sequence d : decoded)
+                    assertArrayEquals(deepBytes, Rlp.encode(d));
+            } catch (Throwable e) {
+                error[0] = e;
+            }
+        }, "small-stack", 128 * 1024);
+        try {
+            t.start();
+            t.join();
+        } finally {
+            Rlp.useIterativeTraversal = false;
+        }
+        if (error[0] != null)
+            throw new AssertionError(error[0]);
+
+        // hostile input is rejected by limits before decoding
+        try {
+            Rlp.decode(direct, examples.Sequence.class, RlpDecodeOptions.UNLIMITED.withMaxDepth(64));
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.DEPTH_EXCEEDED, e.getCode());
+        }
+        try {
+            Rlp.decode(segments, examples.Sequence.class, RlpDecodeOptions.UNLIMITED.withMaxElements(100));
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.TOO_MANY_ELEMENTS, e.getCode());
+        }
+        assertEquals(RlpError.OK, Rlp.validate(direct));
+        assertEquals(0, direct.position());
+
+        // errors of values carry offset of content, same as byte array decoding
+        byte[] numbers = Rlp.encode(new Object[]{1L, 1L << 40});
+        ByteBuffer numbersBuf = ByteBuffer.allocateDirect(numbers.length);
+        numbersBuf.put(numbers).flip();
+        try {
+            Rlp.decode(numbersBuf, int[].class);
+            fail();
+        } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException e) {
+            assertEquals(RlpError.NUMERIC_OVERFLOW, e.getCode());
+            assertEquals(3, e.getOffset());
+            try {
+                Rlp.decode(numbers, int[].class);
+                fail();
+            } catch (com.github.salpadding.rlpstream.exceptions.RlpDecodeException expected) {
+                assertEquals(expected.getOffset(), e.getOffset());
+            }
+        }
+    }
+
+    @Test
+    public void testCompositeDecode() {
+        byte[] blob = new byte[100];
+        for (int i = 0; i < blob.length; i++)
+            blob[i] = (byte) (i + 1);
+        Object[] items = new Object[20];
+        for (int i = 0; i < items.length; i++)
+            items[i] = new Object[]{(long) i * 100000, "item" + i, blob, BigInteger.valueOf(i).shiftLeft(70)};
+        byte[] encoded = Rlp.encode(items);
+        RlpList expected = Rlp.decodeList(encoded);
+
+        // split at uneven boundaries, so some elements straddle segments while others fit in one segment
+        int[] cuts = {0, 3, 3, 50, 170, 171, 400, 900, encoded.length};
+        byte[][] arrays = new byte[cuts.length - 1][];
+        ByteBuffer[] heap = new ByteBuffer[arrays.length];
+        ByteBuffer[] direct = new ByteBuffer[arrays.length];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = Arrays.copyOfRange(encoded, cuts[i], cuts[i + 1]);
+            heap[i] = ByteBuffer.wrap(arrays[i]);
+            direct[i] = ByteBuffer.allocateDirect(arrays[i].length);
+            direct[i].put(arrays[i]).flip();
+        }
+        ByteBuffer[] readOnly = new ByteBuffer[heap.length];
+        for (int i = 0; i < heap.length; i++)
+            readOnly[i] = heap[i].asReadOnlyBuffer();
+
+        for (ByteBuffer[] segments : Arrays.asList(heap, direct, readOnly)) {
+            SourceRlpList list = Rlp.decodeList(segments);
+            assertEquals(items.length, list.size());
+            for (int i = 0; i < items.length; i++) {
+                SourceRlpList item = list.listAt(i);
+                assertEquals(i * 100000L, item.longAt(0));
+                assertEquals("item" + i, item.stringAt(1));
+                assertArrayEquals(blob, item.bytesAt(2));
+                assertEquals(BigInteger.valueOf(i).shiftLeft(70), item.bigIntAt(3));
+                assertArrayEquals(expected.rawAt(i), list.rawAt(i));
+            }
+            byte[][][] decoded = Rlp.decode(segments, byte[][][].class);
+            assertArrayEquals(encoded, Rlp.encode(decoded));
+        }
+
+        RlpSource src = RlpSource.of(arrays);
+        assertEquals(encoded.length, src.size());
+        long root = SourceStreamId.decodeElement(src);
+        assertArrayEquals(encoded, SourceStreamId.rawOf(src, 0, root));
+
+        byte[] bin = Hex.decode(POOL_DATA_HEX);
+        byte[] pools = Rlp.encode(Rlp.decode(bin, PoolData[].class));
+        for (int cut = 1; cut < bin.length; cut += 37) {
+            ByteBuffer[] halves = {ByteBuffer.wrap(bin, 0, cut), ByteBuffer.wrap(bin, cut, bin.length - cut)};
+            assertArrayEquals(pools, Rlp.encode(Rlp.decode(halves, PoolData[].class)));
+        }
+
+        // one buffer is decoded as is, no segment at all is rejected
+        ByteBuffer whole = ByteBuffer.allocateDirect(encoded.length);
+        whole.put(encoded).flip();
+        assertEquals(items.length, Rlp.decodeList(whole).size());
+        assertEquals(0, whole.position());
+        try {
+            Rlp.decodeList(new ByteBuffer[0]);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        try {
+            Rlp.decode(new ByteBuffer[0], byte[][].class);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        // shared list over segments indexed lazily by several threads
+        for (int round = 0; round < 20; round++) {
+            SourceRlpList shared = Rlp.decodeList(direct);
+            java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int seed = t;
+                threads[t] = new Thread(() -> {
+                    Random r = new Random(seed);
+                    for (int i = 0; i < 2000; i++) {
+                        int idx = r.nextInt(items.length);
+                        if (shared.listAt(idx).longAt(0) != idx * 100000L || shared.size() != items.length)
+                            failures.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread t : threads) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            assertEquals(0, failures.get());
+        }
+    }
 }
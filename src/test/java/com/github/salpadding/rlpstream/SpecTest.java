@@ -10,10 +10,12 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.spongycastle.util.encoders.Hex;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(JUnit4.class)
 public class SpecTest {
@@ -258,4 +260,59 @@ public class SpecTest {
         byte[] encoded = testInvalid("lessThanLongLengthArray2");
         Rlp.decode(encoded, RlpValue.class);
     }
+
+    @Test
+    public void testValidate() throws Exception {
+        JsonNode n = OBJECT_MAPPER.readValue(
+            TestUtil.readClassPathFile("rlptest.json"),
+            JsonNode.class
+        );
+
+        Iterator<String> it = n.fieldNames();
+        while (it.hasNext()) {
+            String field = it.next();
+            String out = n.get(field).get("out").asText();
+            if(out.startsWith("0x"))
+                out = out.substring(2);
+            byte[] encoded = Hex.decode(out);
+            assertEquals(field, RlpError.OK, Rlp.validate(encoded));
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length);
+            direct.put(encoded).flip();
+            assertEquals(field, RlpError.OK, Rlp.validate(direct));
+            assertEquals(0, direct.position());
+        }
+    }
+
+    @Test
+    public void testValidateInvalid() {
+        testInvalid("emptyEncoding");
+        Iterator<String> it = INVALID.fieldNames();
+        while (it.hasNext()) {
+            String field = it.next();
+            byte[] encoded = testInvalid(field);
+            long r = Rlp.validate(encoded);
+            assertTrue(field, RlpError.isError(r));
+            assertEquals(field, r, Rlp.validate(ByteBuffer.wrap(encoded)));
+            ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + 1);
+            direct.put((byte) 0).put(encoded).flip().position(1);
+            assertEquals(field, r, Rlp.validate(direct));
+            assertEquals(1, direct.position());
+        }
+
+        long r = Rlp.validate(testInvalid("nonOptimalLongLengthList1"));
+        assertEquals(RlpError.NON_CANONICAL_LONG_LIST, RlpError.codeOf(r));
+        assertEquals(0, RlpError.offsetOf(r));
+
+        // error offset points into nested element
+        byte[] nested = Hex.decode("c4c28100c0");
+        r = Rlp.validate(nested);
+        assertEquals(RlpError.NON_CANONICAL_SHORT_ITEM, RlpError.codeOf(r));
+        assertEquals(2, RlpError.offsetOf(r));
+        ByteBuffer direct = ByteBuffer.allocateDirect(nested.length);
+        direct.put(nested).flip();
+        assertEquals(r, Rlp.validate(direct));
+        assertEquals(RlpError.TRAILING_BYTES, RlpError.codeOf(Rlp.validate(Hex.decode("c00000"))));
+        assertEquals(RlpError.OUT_OF_BOUNDS, RlpError.codeOf(Rlp.validate(Hex.decode("c2c3"))));
+    }
 }